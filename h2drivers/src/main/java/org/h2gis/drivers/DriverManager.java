@@ -28,6 +28,9 @@ package org.h2gis.drivers;
 import org.h2.util.StringUtils;
 import org.h2gis.drivers.dbf.DBFDriverFunction;
 import org.h2gis.drivers.dbf.DBFEngine;
+import org.h2gis.drivers.file_table.FileEngine;
+import org.h2gis.drivers.geojson.GeoJsonDriverFunction;
+import org.h2gis.drivers.geojson.GeoJsonEngine;
 import org.h2gis.drivers.shp.SHPDriverFunction;
 import org.h2gis.drivers.shp.SHPEngine;
 import org.h2gis.h2spatialapi.AbstractFunction;
@@ -52,11 +55,13 @@ public class DriverManager extends AbstractFunction implements ScalarFunction, D
 
     private static final DriverDef[] DRIVERS = new DriverDef[] {
             new DriverDef(DBFEngine.class.getName(),"dbf"),
-            new DriverDef(SHPEngine.class.getName(),"shp")};
+            new DriverDef(SHPEngine.class.getName(),"shp"),
+            new DriverDef(GeoJsonEngine.class.getName(),"geojson")};
     private static final int FORMAT = 0;
     private static final int DESCRIPTION = 1;
     private static final String[][] formatDescription = new String[][] {{"dbf", DBFDriverFunction.DESCRIPTION},
-                                                                        {"shp", SHPDriverFunction.DESCRIPTION}};
+                                                                        {"shp", SHPDriverFunction.DESCRIPTION},
+                                                                        {"geojson", GeoJsonDriverFunction.DESCRIPTION}};
 
     public DriverManager() {
         addProperty(PROP_NAME, "FILE_TABLE");
@@ -99,6 +104,65 @@ public class DriverManager extends AbstractFunction implements ScalarFunction, D
         throw new SQLException("No driver is available to open the "+ext+" file format");
     }
 
+    /**
+     * Copy the content of a file into an existing H2 table. Rows are read through a linked table and inserted by the
+     * database engine, values are not bound one by one through JDBC.
+     * The linked table is a local temporary table dropped on commit, it is never written in the database schema and
+     * its creation does not commit the current transaction. If the connection is in auto commit mode, the rows are
+     * inserted in a single transaction, otherwise the linked table remains in the session until the caller commit.
+     * @param connection Active H2 connection, do not close this connection.
+     * @param engineClassName Table engine class name
+     * @param fileName File path to read
+     * @param tableReference [[catalog.]schema.]table reference of the destination table
+     * @param progress Progress visitor, advanced by the linked table cursor when the database runs in this thread
+     * @param engineArgs Additional table engine arguments, following the file path. Null values are sent as empty
+     *                   arguments.
+     * @throws SQLException
+     */
+    public static void copyFile(Connection connection, String engineClassName, File fileName, String tableReference,
+                                ProgressVisitor progress, String... engineArgs) throws SQLException {
+        TableLocation destination = TableLocation.parse(tableReference);
+        TableLocation linkedTable = new TableLocation(destination.getCatalog(), destination.getSchema(),
+                "H2GIS_COPY_" + Long.toHexString(System.nanoTime()).toUpperCase());
+        StringBuilder args = new StringBuilder(StringUtils.quoteJavaString(fileName.getPath()));
+        for(String arg : engineArgs) {
+            args.append(", ");
+            args.append(StringUtils.quoteJavaString(arg == null ? "" : arg));
+        }
+        // Insert all rows in a single transaction, unless the caller manage the transaction
+        final boolean autoCommit = connection.getAutoCommit();
+        if(autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        boolean committed = false;
+        try {
+            Statement st = connection.createStatement();
+            try {
+                FileEngine.setScanProgress(progress);
+                try {
+                    st.execute(String.format("CREATE LOCAL TEMPORARY TABLE %s ENGINE %s WITH %s ON COMMIT DROP " +
+                            "TRANSACTIONAL", linkedTable, StringUtils.quoteJavaString(engineClassName), args));
+                } finally {
+                    FileEngine.setScanProgress(null);
+                }
+                st.execute(String.format("INSERT INTO %s DIRECT SELECT * FROM %s", destination, linkedTable));
+            } finally {
+                st.close();
+            }
+            if(autoCommit) {
+                connection.commit();
+                committed = true;
+            }
+        } finally {
+            if(autoCommit) {
+                if(!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
     /**
      * Driver declaration
      */
@@ -32,4 +32,13 @@ public interface FileDriver {
      * @throws java.io.IOException Read error
      */
     public Object[] getRow(long rowId) throws IOException;
+
+    /**
+     * Read only one field of a row.
+     * @param rowId Row index [0-getRowCount()[
+     * @param columnId Field index [0-getRow().length[
+     * @return The field value
+     * @throws java.io.IOException Read error
+     */
+    public Object getField(long rowId, int columnId) throws IOException;
 }
@@ -0,0 +1,63 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers;
+
+import java.io.IOException;
+
+/**
+ * Implement this interface in your {@link FileDriver} if the file format is able to compare a field with constant
+ * values without decoding the whole row. Then range conditions on the linked table are evaluated while reading the
+ * file, only the rows that satisfy the condition are decoded.
+ * @author Nicolas Fortin
+ */
+public interface FilterFileDriver extends FileDriver {
+
+    /**
+     * @param columnId Field index [0-getRow().length[
+     * @return True if {@link #createRowFilter(int, Object, Object)} is able to filter this field
+     */
+    boolean isFilterSupported(int columnId);
+
+    /**
+     * @param columnId Field index [0-getRow().length[
+     * @param min Lower bound, inclusive. Null if not bounded.
+     * @param max Upper bound, inclusive. Null if not bounded.
+     * @return Filter on the field values, or null if the field cannot be compared with the provided values
+     */
+    RowFilter createRowFilter(int columnId, Object min, Object max);
+
+    /**
+     * Condition evaluated on the rows of the file.
+     */
+    interface RowFilter {
+        /**
+         * @param rowId Row index [0-getRowCount()[
+         * @return False if the row does not satisfy the condition, true if it may satisfy the condition
+         * @throws IOException Read error
+         */
+        boolean accept(long rowId) throws IOException;
+    }
+}
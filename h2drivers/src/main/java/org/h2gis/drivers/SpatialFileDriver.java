@@ -0,0 +1,69 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+import java.io.IOException;
+
+/**
+ * Implement this interface in your {@link FileDriver} if the file format is able to give the envelope of a row
+ * without reading the whole geometry. Then a spatial index can be created on the linked table.
+ * @author Nicolas Fortin
+ */
+public interface SpatialFileDriver extends FileDriver {
+
+    /**
+     * @return The geometry field index in getRow() array.
+     */
+    int getGeometryFieldIndex();
+
+    /**
+     * @param rowId Row index [0-getRowCount()[
+     * @return The envelope of the geometry or null if the geometry is empty
+     * @throws IOException Read error
+     */
+    Envelope getEnvelope(long rowId) throws IOException;
+
+    /**
+     * @return The envelope of all the geometries, as stored in the file header, or null if unknown
+     * @throws IOException Read error
+     */
+    Envelope getExtent() throws IOException;
+
+    /**
+     * @return True if the file comes with its own spatial index
+     */
+    boolean hasSpatialIndex();
+
+    /**
+     * @param envelope Query envelope
+     * @return Sorted row index [0-getRowCount()[ of the rows that may intersect the envelope, or null if the file
+     * does not have a spatial index
+     * @throws IOException Read error
+     */
+    long[] querySpatialIndex(Envelope envelope) throws IOException;
+}
@@ -24,6 +24,7 @@
  */
 package org.h2gis.drivers.dbf;
 
+import org.h2gis.drivers.DriverManager;
 import org.h2gis.drivers.dbf.internal.DBFDriver;
 import org.h2gis.drivers.dbf.internal.DbaseFileException;
 import org.h2gis.drivers.dbf.internal.DbaseFileHeader;
@@ -49,25 +50,37 @@ import java.sql.Types;
 public class DBFDriverFunction implements DriverFunction {
     public static String DESCRIPTION = "dBase III format";
     private static final int BATCH_MAX_SIZE = 100;
+    private boolean bulkLoad = false;
+
+    /**
+     * @param bulkLoad If true, rows are copied into H2 tables by the database engine through a linked file table
+     *                 instead of JDBC batches. False by default. Other databases always use JDBC batches.
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    /**
+     * @return True if rows are copied into H2 tables through a linked file table
+     */
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+
     @Override
     public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress) throws SQLException, IOException {
         exportTable(connection, tableReference, fileName, progress, null);
     }
 
     public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress,String encoding) throws SQLException, IOException {
-        int recordCount = JDBCUtilities.getRowCount(connection, tableReference);
+        // The table is read once, the record count is written in the file header on close
+        int recordEstimate = (int)Math.min(Integer.MAX_VALUE, JDBCUtilities.getRowCountEstimate(connection, tableReference));
+        int recordCount = 0;
         // Read table content
         Statement st = connection.createStatement();
         ProgressVisitor lineProgress = null;
         if(!(progress instanceof EmptyProgressVisitor)) {
-            ResultSet rs = st.executeQuery(String.format("select count(*) from %s", TableLocation.parse(tableReference)));
-            try {
-                if(rs.next()) {
-                    lineProgress = progress.subProcess(rs.getInt(1));
-                }
-            } finally {
-                rs.close();
-            }
+            lineProgress = progress.subProcess(Math.max(1, recordEstimate));
         }
         try {
             ResultSet rs = st.executeQuery(String.format("select * from %s", TableLocation.parse(tableReference)));
@@ -77,7 +90,6 @@ public class DBFDriverFunction implements DriverFunction {
                 if(encoding != null) {
                     header.setEncoding(encoding);
                 }
-                header.setNumRecords(recordCount);
                 DBFDriver dbfDriver = new DBFDriver();
                 dbfDriver.initDriver(fileName, header);
                 Object[] row = new Object[header.getNumFields()];
@@ -86,11 +98,14 @@ public class DBFDriverFunction implements DriverFunction {
                         row[columnId] = rs.getObject(columnId + 1);
                     }
                     dbfDriver.insertRow(row);
-                    if(lineProgress != null) {
+                    if(lineProgress != null && ++recordCount < recordEstimate) {
                         lineProgress.endStep();
                     }
                 }
                 dbfDriver.close();
+                if(lineProgress != null) {
+                    lineProgress.endOfProgress();
+                }
             } finally {
                 rs.close();
             }
@@ -142,34 +157,17 @@ public class DBFDriverFunction implements DriverFunction {
         try {
             DbaseFileHeader dbfHeader = dbfDriver.getDbaseFileHeader();
             // Build CREATE TABLE sql request
+            final boolean isH2 = JDBCUtilities.isH2DataBase(connection.getMetaData());
             Statement st = connection.createStatement();
             st.execute(String.format("CREATE TABLE %s (%s)", TableLocation.parse(tableReference),
-                    getSQLColumnTypes(dbfHeader, JDBCUtilities.isH2DataBase(connection.getMetaData()))));
+                    getSQLColumnTypes(dbfHeader, isH2)));
             st.close();
             try {
-                PreparedStatement preparedStatement = connection.prepareStatement(
-                        String.format("INSERT INTO %s VALUES ( %s )", TableLocation.parse(tableReference),
-                                getQuestionMark(dbfHeader.getNumFields())));
-                try {
-                    long batchSize = 0;
-                    for (int rowId = 0; rowId < dbfDriver.getRowCount(); rowId++) {
-                        Object[] values = dbfDriver.getRow(rowId);
-                        for (int columnId = 0; columnId < values.length; columnId++) {
-                            preparedStatement.setObject(columnId + 1, values[columnId]);
-                        }
-                        preparedStatement.addBatch();
-                        batchSize++;
-                        if (batchSize >= BATCH_MAX_SIZE) {
-                            preparedStatement.executeBatch();
-                            preparedStatement.clearBatch();
-                            batchSize = 0;
-                        }
-                    }
-                    if(batchSize > 0) {
-                        preparedStatement.executeBatch();
-                    }
-                } finally {
-                    preparedStatement.close();
+                if(isH2 && bulkLoad) {
+                    DriverManager.copyFile(connection, DBFEngine.class.getName(), fileName, tableReference,
+                            progress, forceFileEncoding);
+                } else {
+                    insertRows(connection, tableReference, dbfDriver);
                 }
                 //TODO create spatial index on the_geom ?
             } catch (Exception ex) {
@@ -181,6 +179,34 @@ public class DBFDriverFunction implements DriverFunction {
         }
     }
 
+    private static void insertRows(Connection connection, String tableReference, DBFDriver dbfDriver) throws SQLException, IOException {
+        DbaseFileHeader dbfHeader = dbfDriver.getDbaseFileHeader();
+        PreparedStatement preparedStatement = connection.prepareStatement(
+                String.format("INSERT INTO %s VALUES ( %s )", TableLocation.parse(tableReference),
+                        getQuestionMark(dbfHeader.getNumFields())));
+        try {
+            long batchSize = 0;
+            for (int rowId = 0; rowId < dbfDriver.getRowCount(); rowId++) {
+                Object[] values = dbfDriver.getRow(rowId);
+                for (int columnId = 0; columnId < values.length; columnId++) {
+                    preparedStatement.setObject(columnId + 1, values[columnId]);
+                }
+                preparedStatement.addBatch();
+                batchSize++;
+                if (batchSize >= BATCH_MAX_SIZE) {
+                    preparedStatement.executeBatch();
+                    preparedStatement.clearBatch();
+                    batchSize = 0;
+                }
+            }
+            if(batchSize > 0) {
+                preparedStatement.executeBatch();
+            }
+        } finally {
+            preparedStatement.close();
+        }
+    }
+
     private static class DBFType {
 
         char type;
@@ -36,7 +36,9 @@ import java.io.IOException;
 import java.util.List;
 
 /**
- * SHP Table factory.
+ * DBF Table factory.
+ * Table engine arguments are the file path, the optional encoding and the optional file access mode
+ * (AUTO, HEAP or MAPPED).
  * @author Nicolas Fortin
  */
 public class DBFEngine extends FileEngine<DBFDriver> {
@@ -44,7 +46,7 @@ public class DBFEngine extends FileEngine<DBFDriver> {
     @Override
     protected DBFDriver createDriver(File filePath, List<String> args) throws IOException {
         DBFDriver driver = new DBFDriver();
-        driver.initDriverFromFile(filePath,  args.size() > 1 ? args.get(1) : null);
+        driver.initDriverFromFile(filePath, getArgument(args, 1), getReadMode(args, 2));
         return driver;
     }
 
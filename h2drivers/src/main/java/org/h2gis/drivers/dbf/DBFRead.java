@@ -52,7 +52,21 @@ public class DBFRead  extends AbstractFunction implements ScalarFunction {
     }
 
     public static void read(Connection connection, String fileName, String tableReference, String fileEncoding) throws IOException, SQLException {
+        read(connection, fileName, tableReference, fileEncoding, false);
+    }
+
+    /**
+     * Copy data from DBF File into a new table in specified connection.
+     * @param connection Active connection
+     * @param fileName File path of the DBF file
+     * @param tableReference [[catalog.]schema.]table reference
+     * @param fileEncoding Use this encoding instead of DBF file header encoding property, may be null.
+     * @param bulkLoad If true, rows are copied by the database engine through a linked file table
+     */
+    public static void read(Connection connection, String fileName, String tableReference, String fileEncoding,
+                            boolean bulkLoad) throws IOException, SQLException {
         DBFDriverFunction dbfDriverFunction = new DBFDriverFunction();
+        dbfDriverFunction.setBulkLoad(bulkLoad);
         dbfDriverFunction.importFile(connection, tableReference, new File(fileName), new EmptyProgressVisitor(), fileEncoding);
     }
 }
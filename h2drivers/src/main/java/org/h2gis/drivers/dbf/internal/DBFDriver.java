@@ -25,18 +25,20 @@
 
 package org.h2gis.drivers.dbf.internal;
 
-import org.h2gis.drivers.FileDriver;
+import org.h2gis.drivers.FilterFileDriver;
+import org.h2gis.drivers.utility.ReadBufferManager;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Date;
 
 /**
  * Manage DBFReader and DBFWriter
  * @author Nicolas Fortin
  */
-public class DBFDriver implements FileDriver {
+public class DBFDriver implements FilterFileDriver {
     private File dbfFile;
     private DbaseFileReader dbaseFileReader;
     private DbaseFileWriter dbaseFileWriter;
@@ -57,10 +59,21 @@ public class DBFDriver implements FileDriver {
      * @throws IOException
      */
     public void initDriverFromFile(File dbfFile, String forceEncoding) throws IOException {
+        initDriverFromFile(dbfFile, forceEncoding, ReadBufferManager.ReadMode.AUTO);
+    }
+
+    /**
+     * Init file header for DBF File
+     * @param dbfFile DBF File path
+     * @param forceEncoding File encoding to use, null will use the file encoding provided in the file header
+     * @param readMode File access mode
+     * @throws IOException
+     */
+    public void initDriverFromFile(File dbfFile, String forceEncoding, ReadBufferManager.ReadMode readMode) throws IOException {
         // Read columns from files metadata
         this.dbfFile = dbfFile;
         FileInputStream fis = new FileInputStream(dbfFile);
-        dbaseFileReader = new DbaseFileReader(fis.getChannel(), forceEncoding);
+        dbaseFileReader = new DbaseFileReader(fis.getChannel(), forceEncoding, readMode);
     }
 
     public void initDriver(File dbfFile, DbaseFileHeader dbaseHeader) throws IOException {
@@ -86,6 +99,15 @@ public class DBFDriver implements FileDriver {
         }
     }
 
+    /**
+     * @param dictionarySize Maximum number of distinct character values shared by column, 0 to disable
+     * @see DbaseFileReader#setStringDictionarySize(int)
+     */
+    public void setStringDictionarySize(int dictionarySize) {
+        checkReader();
+        dbaseFileReader.setStringDictionarySize(dictionarySize);
+    }
+
     private void checkReader() {
         if(dbaseFileReader == null) {
             throw new IllegalStateException("The driver is not in read mode");
@@ -148,4 +170,91 @@ public class DBFDriver implements FileDriver {
         }
         return values;
     }
+
+    @Override
+    public Object getField(long rowId, int columnId) throws IOException {
+        return dbaseFileReader.getFieldValue((int)rowId, columnId);
+    }
+
+    @Override
+    public boolean isFilterSupported(int columnId) {
+        if(dbaseFileReader == null) {
+            return false;
+        }
+        switch (Character.toUpperCase(getDbaseFileHeader().getFieldType(columnId))) {
+            case 'C':
+            case 'N':
+            case 'F':
+            case 'D':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public RowFilter createRowFilter(int columnId, Object min, Object max) {
+        if(!isFilterSupported(columnId)) {
+            return null;
+        }
+        final char type = Character.toUpperCase(getDbaseFileHeader().getFieldType(columnId));
+        Class<?> boundType = type == 'C' ? String.class : type == 'D' ? Date.class : Number.class;
+        if((min != null && !boundType.isInstance(min)) || (max != null && !boundType.isInstance(max))) {
+            return null;
+        }
+        return new RangeFilter(dbaseFileReader, columnId, type, min, max);
+    }
+
+    /**
+     * Keep the rows where the field value is in the provided range. Character fields are compared on the record
+     * bytes, numbers and dates are parsed without creating a String.
+     */
+    private static class RangeFilter implements RowFilter {
+        private final DbaseFileReader reader;
+        private final int column;
+        private final char type;
+        private final String minString, maxString;
+        private final double minValue, maxValue;
+
+        private RangeFilter(DbaseFileReader reader, int column, char type, Object min, Object max) {
+            this.reader = reader;
+            this.column = column;
+            this.type = type;
+            if(type == 'C') {
+                minString = (String) min;
+                maxString = (String) max;
+                minValue = Double.NEGATIVE_INFINITY;
+                maxValue = Double.POSITIVE_INFINITY;
+            } else {
+                minString = null;
+                maxString = null;
+                minValue = min == null ? Double.NEGATIVE_INFINITY : toDouble(min);
+                maxValue = max == null ? Double.POSITIVE_INFINITY : toDouble(max);
+            }
+        }
+
+        private static double toDouble(Object value) {
+            if(value instanceof Date) {
+                return ((Date) value).getTime();
+            } else {
+                return ((Number) value).doubleValue();
+            }
+        }
+
+        @Override
+        public boolean accept(long rowId) throws IOException {
+            final int row = (int) rowId;
+            if(type == 'C') {
+                return (minString == null || reader.compareCharacterField(row, column, minString) >= 0) &&
+                        (maxString == null || reader.compareCharacterField(row, column, maxString) <= 0);
+            }
+            Object value = reader.getFieldValue(row, column);
+            if(value == null) {
+                // A comparison with null is never true
+                return false;
+            }
+            double fieldValue = toDouble(value);
+            return fieldValue >= minValue && fieldValue <= maxValue;
+        }
+    }
 }
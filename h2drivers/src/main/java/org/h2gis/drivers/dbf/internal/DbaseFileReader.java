@@ -93,6 +93,30 @@ public class DbaseFileReader {
         private CharsetDecoder decoder;
         private char[] fieldTypes;
         private int[] fieldLengths;
+        // Position of each field in the record, the first byte is the deletion flag
+        private int[] fieldOffsets;
+        // Last read record, fields are decoded on demand
+        private byte[] recordBytes;
+        private ByteBuffer recordBuffer;
+        private int currentRecord = -1;
+        /** Default maximum number of distinct values shared by character field */
+        public static final int DEFAULT_DICTIONARY_SIZE = 1024;
+        // Shared String instances of character fields, by column
+        private int dictionarySize = DEFAULT_DICTIONARY_SIZE;
+        private StringDictionary[] dictionaries;
+        // Reused to build date values
+        private Calendar calendar;
+        // Returned by the byte parsers when the field must be decoded as a String
+        private static final Object NOT_PARSED = new Object();
+        // Doubles are exact up to 2^53, as are the power of ten up to 10^22
+        private static final long MAX_EXACT_MANTISSA = 1L << 53;
+        private static final double[] POWERS_OF_TEN = new double[23];
+        static {
+                POWERS_OF_TEN[0] = 1;
+                for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+                        POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+                }
+        }
     private static final Logger LOG = LoggerFactory.getLogger(DbaseFileReader.class);
 
         /**
@@ -104,17 +128,34 @@ public class DbaseFileReader {
          *             If an error occurs while initializing.
          */
         public DbaseFileReader(FileChannel channel,String forceEncoding)
+                throws IOException {
+                this(channel, forceEncoding, ReadBufferManager.ReadMode.AUTO);
+        }
+
+        /**
+         * Creates a new instance of DBaseFileReader
+         *
+         * @param channel
+         *            The readable channel to use.
+         * @param forceEncoding
+         *            If defined use this encoding instead of the one defined in dbf header.
+         * @param readMode
+         *            File access mode
+         * @throws java.io.IOException
+         *             If an error occurs while initializing.
+         */
+        public DbaseFileReader(FileChannel channel,String forceEncoding, ReadBufferManager.ReadMode readMode)
                 throws IOException {
                 this.channel = channel;
 
                 header = new DbaseFileHeader();
                 header.readHeader(channel, forceEncoding);
 
-                init();
+                init(readMode);
         }
 
-        private void init() throws IOException {
-                buffer = new ReadBufferManager(channel);
+        private void init(ReadBufferManager.ReadMode readMode) throws IOException {
+                buffer = new ReadBufferManager(channel, 1024 * 32, readMode);
 
                 // The entire file is in little endian
                 buffer.order(ByteOrder.LITTLE_ENDIAN);
@@ -122,16 +163,52 @@ public class DbaseFileReader {
                 // Set up some buffers and lookups for efficiency
                 fieldTypes = new char[header.getNumFields()];
                 fieldLengths = new int[header.getNumFields()];
+                fieldOffsets = new int[header.getNumFields()];
+                int fieldOffset = 1;
                 for (int i = 0, ii = header.getNumFields(); i < ii; i++) {
                         fieldTypes[i] = header.getFieldType(i);
                         fieldLengths[i] = header.getFieldLength(i);
+                        fieldOffsets[i] = fieldOffset;
+                        fieldOffset += fieldLengths[i];
                 }
+                recordBytes = new byte[header.getRecordLength()];
+                recordBuffer = ByteBuffer.wrap(recordBytes);
+                currentRecord = -1;
 
                 charBuffer = CharBuffer.allocate(header.getRecordLength() - 1);
                 Charset chars = Charset.forName(header.getFileEncoding());
                 decoder = chars.newDecoder();
         }
 
+        /**
+         * Repeated values of character fields are returned as the same String instance. Values are kept for each
+         * column up to the provided number of distinct values.
+         * @param dictionarySize Maximum number of distinct values kept by column, 0 to disable
+         */
+        public void setStringDictionarySize(int dictionarySize) {
+                this.dictionarySize = Math.max(0, dictionarySize);
+                dictionaries = null;
+        }
+
+        /**
+         * @return Maximum number of distinct values kept by column, 0 if disabled
+         */
+        public int getStringDictionarySize() {
+                return dictionarySize;
+        }
+
+        private StringDictionary getDictionary(int column) {
+                if (dictionaries == null) {
+                        dictionaries = new StringDictionary[fieldTypes.length];
+                }
+                StringDictionary dictionary = dictionaries[column];
+                if (dictionary == null) {
+                        dictionary = new StringDictionary(dictionarySize);
+                        dictionaries[column] = dictionary;
+                }
+                return dictionary;
+        }
+
         /**
          * Get the header from this file. The header is read upon instantiation.
          *
@@ -159,47 +236,263 @@ public class DbaseFileReader {
                 charBuffer = null;
                 decoder = null;
                 header = null;
+                recordBytes = null;
+                recordBuffer = null;
+                dictionaries = null;
         }
 
         /**
-         * @param pos Pos index in the buffer
-         * @param length Array length to extract
-         * @return byte array extracted from the buffer
+         * Read the whole record in the record buffer, if it is not the last read record.
+         * @param row Record index
          * @throws IOException
          */
-        private byte[] getBytes(int pos, int length) throws IOException {
-                byte[] bytes = new byte[length];
-                buffer.get(pos, bytes);
-                return bytes;
+        private void loadRecord(int row) throws IOException {
+                if (row != currentRecord) {
+                        buffer.get(header.getHeaderLength() + (long) row * header.getRecordLength(), recordBytes);
+                        currentRecord = row;
+                }
         }
 
+        /**
+         * Decode a single field of a record. Reading the fields of the same record in sequence reads the file only
+         * once.
+         * @param row Record index
+         * @param column Field index
+         * @return Field value
+         * @throws IOException
+         */
         public Object getFieldValue(int row, int column) throws IOException {
-                int fieldPosition = getPositionFor(row, column);
-                int fieldLength = getLengthFor(column);
-                byte[] fieldBytes = getBytes(fieldPosition, fieldLength);
-                ByteBuffer field = ByteBuffer.wrap(fieldBytes);
+                loadRecord(row);
+                if (fieldLengths[column] > 0) {
+                        // ASCII fields are parsed from the record bytes
+                        Object value = NOT_PARSED;
+                        switch (fieldTypes[column]) {
+                                case 'l':
+                                case 'L':
+                                        value = parseLogical(column);
+                                        break;
+                                case 'n':
+                                case 'N':
+                                case 'f':
+                                case 'F':
+                                        value = parseNumber(column);
+                                        break;
+                                case 'd':
+                                case 'D':
+                                        value = parseDate(column);
+                                        break;
+                                case 'c':
+                                case 'C':
+                                        if (dictionarySize > 0) {
+                                                String shared = getDictionary(column).get(recordBytes,
+                                                        fieldOffsets[column], fieldLengths[column]);
+                                                if (shared != null) {
+                                                        value = shared;
+                                                }
+                                        }
+                                        break;
+                        }
+                        if (value != NOT_PARSED) {
+                                return value;
+                        }
+                }
+                recordBuffer.limit(fieldOffsets[column] + fieldLengths[column]);
+                recordBuffer.position(fieldOffsets[column]);
 
                 charBuffer.clear();
-                decoder.decode(field, charBuffer, true);
+                decoder.reset();
+                decoder.decode(recordBuffer, charBuffer, true);
                 charBuffer.flip();
 
-                return readObject(0, column);
+                Object value = readObject(0, column);
+                if (dictionarySize > 0 && value instanceof String) {
+                        getDictionary(column).put(recordBytes, fieldOffsets[column], fieldLengths[column],
+                                (String) value);
+                }
+                return value;
+        }
+
+        /**
+         * Compare a character field with a value. Fields made of ASCII characters are compared on the record bytes,
+         * other fields are decoded.
+         * @param row Record index
+         * @param column Character field index
+         * @param value Value to compare with
+         * @return The comparison result as in {@link String#compareTo(String)}
+         * @throws IOException
+         */
+        public int compareCharacterField(int row, int column, String value) throws IOException {
+                loadRecord(row);
+                int start = fieldOffsets[column];
+                int end = start + fieldLengths[column] - 1;
+                for (int i = start; i <= end; i++) {
+                        if (recordBytes[i] < 0) {
+                                String fieldValue = (String) getFieldValue(row, column);
+                                return fieldValue == null ? -1 : fieldValue.compareTo(value);
+                        }
+                }
+                // Same trimming as the decoded value
+                while (start < end && isBlank(recordBytes[start])) {
+                        start++;
+                }
+                while (end > start && isBlank(recordBytes[end])) {
+                        end--;
+                }
+                final int length = end + 1 - start;
+                final int minLength = Math.min(length, value.length());
+                for (int i = 0; i < minLength; i++) {
+                        char fieldChar = (char) recordBytes[start + i];
+                        char valueChar = value.charAt(i);
+                        if (fieldChar != valueChar) {
+                                return fieldChar - valueChar;
+                        }
+                }
+                return length - value.length();
+        }
+
+        private static boolean isBlank(byte asciiChar) {
+                return asciiChar == 0 || Character.isWhitespace((char) asciiChar);
+        }
 
+        /**
+         * (L)logical (T,t,F,f,Y,y,N,n)
+         * @param column Field index
+         * @return Boolean value
+         * @throws IOException If the value is not a logical value
+         */
+        private Object parseLogical(int column) throws IOException {
+                byte value = recordBytes[fieldOffsets[column]];
+                switch (value) {
+                        case 't':
+                        case 'T':
+                        case 'Y':
+                        case 'y':
+                                return Boolean.TRUE;
+                        case 'f':
+                        case 'F':
+                        case 'N':
+                        case 'n':
+                                return Boolean.FALSE;
+                        default:
+                                throw new IOException("Unknown logical value : '" + (char) (value & 0xFF) + "'");
+                }
         }
 
-        private int getLengthFor(int column) {
-                return header.getFieldLength(column);
+        /**
+         * Parse the digits of a N or F field without creating a String.
+         * @param column Field index
+         * @return Integer, Long or Double value, NOT_PARSED if the value does not fit the simple decimal notation
+         */
+        private Object parseNumber(int column) {
+                int start = fieldOffsets[column];
+                int end = start + fieldLengths[column];
+                // trim
+                while (start < end && (recordBytes[start] & 0xFF) <= ' ') {
+                        start++;
+                }
+                while (end > start && (recordBytes[end - 1] & 0xFF) <= ' ') {
+                        end--;
+                }
+                boolean negative = false;
+                if (start < end && (recordBytes[start] == '-' || recordBytes[start] == '+')) {
+                        negative = recordBytes[start] == '-';
+                        start++;
+                }
+                long mantissa = 0;
+                int digits = 0;
+                int fractionDigits = 0;
+                boolean decimalPoint = false;
+                for (int i = start; i < end; i++) {
+                        byte b = recordBytes[i];
+                        if (b >= '0' && b <= '9') {
+                                if (digits == 18) {
+                                        // May overflow
+                                        return NOT_PARSED;
+                                }
+                                mantissa = mantissa * 10 + (b - '0');
+                                digits++;
+                                if (decimalPoint) {
+                                        fractionDigits++;
+                                }
+                        } else if (b == '.' && !decimalPoint) {
+                                decimalPoint = true;
+                        } else {
+                                return NOT_PARSED;
+                        }
+                }
+                if (digits == 0) {
+                        return NOT_PARSED;
+                }
+                if (!decimalPoint && (fieldTypes[column] == 'N' || fieldTypes[column] == 'n') &&
+                        header.getFieldDecimalCount(column) == 0) {
+                        long value = negative ? -mantissa : mantissa;
+                        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                                return (int) value;
+                        } else {
+                                return value;
+                        }
+                }
+                if (mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+                        return NOT_PARSED;
+                }
+                double value = mantissa / POWERS_OF_TEN[fractionDigits];
+                return negative ? -value : value;
         }
 
-        private int getPositionFor(int row, int column) {
-                int recordOffset = header.getHeaderLength() + row
-                        * header.getRecordLength() + 1;
-                int fieldOffset = 0;
-                for (int i = 0; i < column; i++) {
-                        fieldOffset += header.getFieldLength(i);
+        /**
+         * Parse a yyyyMMdd date field without creating a String.
+         * @param column Field index
+         * @return Date or null, NOT_PARSED if the field is not made of digits or blank characters
+         */
+        private Object parseDate(int column) {
+                final int offset = fieldOffsets[column];
+                if (fieldLengths[column] < 8) {
+                        return NOT_PARSED;
                 }
+                boolean blankYear = true;
+                for (int i = offset; i < offset + 4; i++) {
+                        if ((recordBytes[i] & 0xFF) > ' ') {
+                                blankYear = false;
+                                break;
+                        }
+                }
+                if (blankYear) {
+                        return null;
+                }
+                int year = parseDigits(offset, 4);
+                int month = parseDigits(offset + 4, 2);
+                int day = parseDigits(offset + 6, 2);
+                if (year < 0 || month < 0 || day < 0) {
+                        return NOT_PARSED;
+                }
+                if (fieldLengths[column] == 8 && year == 0 && month == 0 && day == 0) {
+                        return null;
+                }
+                if (calendar == null) {
+                        calendar = Calendar.getInstance();
+                }
+                calendar.clear();
+                calendar.set(Calendar.YEAR, year);
+                calendar.set(Calendar.MONTH, month - 1);
+                calendar.set(Calendar.DAY_OF_MONTH, day);
+                return calendar.getTime();
+        }
 
-                return fieldOffset + recordOffset;
+        /**
+         * @param offset Position in the record
+         * @param length Number of digits
+         * @return The unsigned value or -1 if a byte is not a digit
+         */
+        private int parseDigits(int offset, int length) {
+                int value = 0;
+                for (int i = offset; i < offset + length; i++) {
+                        byte b = recordBytes[i];
+                        if (b < '0' || b > '9') {
+                                return -1;
+                        }
+                        value = value * 10 + (b - '0');
+                }
+                return value;
         }
 
         private Object readObject(final int fieldOffset, final int fieldNum) throws IOException {
@@ -46,8 +46,13 @@ package org.h2gis.drivers.dbf.internal;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.text.FieldPosition;
 import java.text.NumberFormat;
 import java.util.Calendar;
@@ -77,9 +82,26 @@ public class DbaseFileWriter {
 	private DbaseFileWriter.FieldFormatter formatter;
 	WritableByteChannel channel;
 	private ByteBuffer buffer;
+	/** Position of the number of records in the file header */
+	private static final int RECORD_COUNT_OFFSET = 4;
 	private static final Number NULL_NUMBER = Integer.valueOf(0);
 	private static final String NULL_STRING = "";
 	private Charset charset;
+	private int recordCount = 0;
+	/** Size of the buffer of records sent to the channel at once */
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+	// The whole record is formatted in this array, then copied in the write buffer
+	private byte[] recordBytes;
+	private ByteBuffer recordBuffer;
+	private int[] fieldOffsets;
+	private CharsetEncoder encoder;
+	// Number formats by decimal count
+	private NumberFormat[] numberFormats;
+	private final StringBuffer numberString = new StringBuffer();
+	private final FieldPosition fieldPosition = new FieldPosition(NumberFormat.INTEGER_FIELD);
+	private final char[] digits = new char[20];
+	private final CharBuffer digitsBuffer = CharBuffer.wrap(digits);
+	private final Calendar calendar = Calendar.getInstance(Locale.US);
 
 	/**
 	 * Create a DbaseFileWriter using the specified header and writing to the
@@ -129,15 +151,32 @@ public class DbaseFileWriter {
 	}
 
 	private void init() throws IOException {
-		buffer = ByteBuffer.allocateDirect(header.getRecordLength());
+		final int recordLength = header.getRecordLength();
+		buffer = ByteBuffer.allocateDirect(Math.max(recordLength, WRITE_BUFFER_SIZE / recordLength * recordLength));
+		recordBytes = new byte[recordLength];
+		recordBuffer = ByteBuffer.wrap(recordBytes);
+		// The first byte is the deletion flag
+		fieldOffsets = new int[header.getNumFields()];
+		int offset = 1;
+		for (int i = 0; i < fieldOffsets.length; i++) {
+			fieldOffsets[i] = offset;
+			offset += header.getFieldLength(i);
+		}
+		encoder = charset.newEncoder();
+		encoder.onMalformedInput(CodingErrorAction.REPLACE);
+		encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
 	}
 
+	/**
+	 * Send the buffered records to the channel
+	 * @throws IOException
+	 */
 	private void write() throws IOException {
-		buffer.position(0);
-		int r = buffer.remaining();
-                do {
-                        r -= channel.write(buffer);
-                } while (r > 0);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
 	}
 
 	/**
@@ -157,60 +196,179 @@ public class DbaseFileWriter {
 					+ record.length + " expected " + header.getNumFields());
 		}
 
-		buffer.position(0);
-
 		// put the 'not-deleted' marker
-		buffer.put((byte) ' ');
-
-		for (int i = 0; i < header.getNumFields(); i++) {
-			String fieldString = fieldString(record[i], i);
-			if (header.getFieldLength(i) != fieldString
-					.getBytes(charset.name()).length) {
-				buffer.put(new byte[header.getFieldLength(i)]);
-			} else {
-				buffer.put(fieldString.getBytes(charset.name()));
-			}
+		recordBytes[0] = ' ';
 
+		for (int i = 0; i < record.length; i++) {
+			writeField(record[i], i);
 		}
 
-		write();
+		if (buffer.remaining() < recordBytes.length) {
+			write();
+		}
+		buffer.put(recordBytes);
+		recordCount++;
 	}
 
-	private String fieldString(Object obj, final int col) {
-		String o;
+	/**
+	 * Format a field in the record array
+	 * @param obj Field value
+	 * @param col Field index
+	 */
+	private void writeField(Object obj, final int col) {
+		final int offset = fieldOffsets[col];
 		final int fieldLen = header.getFieldLength(col);
 		switch (header.getFieldType(col)) {
 		case 'C':
                 case 'M':
                 case 'G':
 		case 'c':
-			o = formatter.getFieldString(fieldLen, obj != null ? obj.toString() : NULL_STRING);
+			writeString(obj != null ? obj.toString() : NULL_STRING, offset, fieldLen);
 			break;
 		case 'L':
 		case 'l':
-			o = (obj == null ? "F" : (Boolean)obj ? "T" : "F");
+			writeString(obj == null ? "F" : (Boolean) obj ? "T" : "F", offset, fieldLen);
 			break;
 		case 'N':
 		case 'n':
 			// int?
 			if (header.getFieldDecimalCount(col) == 0) {
-				o = formatter.getFieldString(fieldLen, 0, (obj instanceof Number ? (Number)obj : NULL_NUMBER));
+				if (obj instanceof Integer || obj instanceof Long || obj instanceof Short || obj instanceof Byte) {
+					writeInteger(((Number) obj).longValue(), offset, fieldLen);
+				} else {
+					writeNumber(obj instanceof Number ? (Number) obj : NULL_NUMBER, 0, offset, fieldLen);
+				}
 				break;
 			}
 		case 'F':
 		case 'f':
-			o = formatter.getFieldString(fieldLen, header
-					.getFieldDecimalCount(col), (obj instanceof Number ? (Number)obj : NULL_NUMBER));
+			writeNumber(obj instanceof Number ? (Number) obj : NULL_NUMBER, header.getFieldDecimalCount(col),
+					offset, fieldLen);
 			break;
 		case 'D':
 		case 'd':
-			o = formatter.getFieldString((obj instanceof Date ? (Date)obj : null));
+			writeDate(obj instanceof Date ? (Date) obj : null, offset, fieldLen);
 			break;
 		default:
 			throw new IllegalStateException("Unknown type "
 					+ header.getFieldType(col));
 		}
-		return o;
+	}
+
+	/**
+	 * Write a left aligned string, padded with spaces. ASCII characters are copied without using the encoder.
+	 * The string is truncated on a character boundary if it does not fit.
+	 */
+	private void writeString(String s, int offset, int length) {
+		final int end = offset + length;
+		int position = offset;
+		int i = 0;
+		final int count = Math.min(s.length(), length);
+		while (i < count) {
+			char c = s.charAt(i);
+			if (c >= 0x80) {
+				break;
+			}
+			recordBytes[position++] = (byte) c;
+			i++;
+		}
+		if (i < s.length() && position < end) {
+			// Not an ASCII character
+			recordBuffer.limit(end);
+			recordBuffer.position(position);
+			encoder.reset();
+			if (!encoder.encode(CharBuffer.wrap(s, i, s.length()), recordBuffer, true).isOverflow()) {
+				encoder.flush(recordBuffer);
+			}
+			position = recordBuffer.position();
+		}
+		while (position < end) {
+			recordBytes[position++] = ' ';
+		}
+	}
+
+	/**
+	 * Copy a right aligned ASCII number, padded with spaces. The number is truncated if it does not fit.
+	 */
+	private void writeNumberChars(CharSequence chars, int charsOffset, int charsLength, int offset, int length) {
+		int position = offset;
+		for (int i = charsLength; i < length; i++) {
+			recordBytes[position++] = ' ';
+		}
+		final int end = offset + length;
+		for (int i = charsOffset; position < end; i++) {
+			char c = chars.charAt(i);
+			// Infinity and NaN symbols
+			recordBytes[position++] = c < 0x80 ? (byte) c : (byte) '?';
+		}
+	}
+
+	private void writeInteger(long value, int offset, int length) {
+		if (value == Long.MIN_VALUE) {
+			writeNumber(value, 0, offset, length);
+			return;
+		}
+		int position = digits.length;
+		long remaining = Math.abs(value);
+		do {
+			digits[--position] = (char) ('0' + remaining % 10);
+			remaining /= 10;
+		} while (remaining > 0);
+		if (value < 0) {
+			digits[--position] = '-';
+		}
+		writeNumberChars(digitsBuffer, position, digits.length - position, offset, length);
+	}
+
+	private void writeNumber(Number n, int decimalPlaces, int offset, int length) {
+		if (numberFormats == null || numberFormats.length <= decimalPlaces) {
+			NumberFormat[] formats = new NumberFormat[decimalPlaces + 1];
+			if (numberFormats != null) {
+				System.arraycopy(numberFormats, 0, formats, 0, numberFormats.length);
+			}
+			numberFormats = formats;
+		}
+		NumberFormat numFormat = numberFormats[decimalPlaces];
+		if (numFormat == null) {
+			numFormat = NumberFormat.getNumberInstance(Locale.US);
+			// Avoid grouping on number format
+			numFormat.setGroupingUsed(false);
+			numFormat.setMaximumFractionDigits(decimalPlaces);
+			numFormat.setMinimumFractionDigits(decimalPlaces);
+			numberFormats[decimalPlaces] = numFormat;
+		}
+		numberString.setLength(0);
+		numFormat.format(n, numberString, fieldPosition);
+		writeNumberChars(numberString, 0, numberString.length(), offset, length);
+	}
+
+	private void writeDate(Date d, int offset, int length) {
+		if (d != null) {
+			calendar.setTime(d);
+			int year = calendar.get(Calendar.YEAR);
+			if (year > 9999 || length < 8) {
+				writeString(formatter.getFieldString(d), offset, length);
+				return;
+			}
+			writeDigits(year, offset, 4);
+			writeDigits(calendar.get(Calendar.MONTH) + 1, offset + 4, 2);
+			writeDigits(calendar.get(Calendar.DAY_OF_MONTH), offset + 6, 2);
+			for (int i = offset + 8; i < offset + length; i++) {
+				recordBytes[i] = ' ';
+			}
+		} else {
+			writeString(NULL_STRING, offset, length);
+		}
+	}
+
+	/**
+	 * Write zero padded digits
+	 */
+	private void writeDigits(int value, int offset, int count) {
+		for (int i = offset + count - 1; i >= offset; i--) {
+			recordBytes[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
 	}
 
 	/**
@@ -228,11 +386,27 @@ public class DbaseFileWriter {
 		// buffer.position(0);
 		// buffer.put((byte) 0).position(0).limit(1);
 		// write();
+		if (buffer != null && channel.isOpen()) {
+			write();
+		}
+		if (channel instanceof FileChannel && channel.isOpen() && recordCount != header.getNumRecords()) {
+			// The number of records was not known when the header has been written
+			header.setNumRecords(recordCount);
+			ByteBuffer count = ByteBuffer.allocate(4);
+			count.order(ByteOrder.LITTLE_ENDIAN);
+			count.putInt(recordCount);
+			count.flip();
+			while (count.hasRemaining()) {
+				((FileChannel) channel).write(count, RECORD_COUNT_OFFSET + count.position());
+			}
+		}
 		if (channel.isOpen()) {
 			channel.close();
 		}
 
 		buffer = null;
+		recordBytes = null;
+		recordBuffer = null;
 		channel = null;
 		formatter = null;
 	}
@@ -0,0 +1,148 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.dbf.internal;
+
+import java.util.Arrays;
+
+/**
+ * Map the raw bytes of a character field to a shared String instance, in order to not create a new String for each
+ * repeated value of a column. The number of entries is limited, values are not added once the limit is reached.
+ * @author Nicolas Fortin
+ */
+public class StringDictionary {
+    private final int maxSize;
+    private byte[][] keys = new byte[16][];
+    private int[] hashes = new int[16];
+    private String[] values = new String[16];
+    private int size = 0;
+
+    /**
+     * @param maxSize Maximum number of distinct values kept by this dictionary
+     */
+    public StringDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return Number of values in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return True if no more values can be added
+     */
+    public boolean isFull() {
+        return size >= maxSize;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(byte[] key, byte[] bytes, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param bytes Field bytes
+     * @param offset Field offset in bytes
+     * @param length Field length
+     * @return The String associated with these bytes or null if not in the dictionary
+     */
+    public String get(byte[] bytes, int offset, int length) {
+        final int hash = hash(bytes, offset, length);
+        final int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && equals(keys[slot], bytes, offset, length)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Add a value, ignored if the dictionary is full.
+     * @param bytes Field bytes
+     * @param offset Field offset in bytes
+     * @param length Field length
+     * @param value Decoded value of the field
+     */
+    public void put(byte[] bytes, int offset, int length, String value) {
+        if (isFull()) {
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        insert(hash(bytes, offset, length), Arrays.copyOfRange(bytes, offset, offset + length), value);
+    }
+
+    private void insert(int hash, byte[] key, String value) {
+        final int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && Arrays.equals(keys[slot], key)) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        hashes[slot] = hash;
+        values[slot] = value;
+        size++;
+    }
+
+    private void grow() {
+        byte[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        String[] oldValues = values;
+        keys = new byte[oldKeys.length * 2][];
+        hashes = new int[oldKeys.length * 2];
+        values = new String[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ import org.h2.message.DbException;
 import org.h2.table.Table;
 import org.h2.util.StringUtils;
 import org.h2gis.drivers.FileDriver;
+import org.h2gis.h2spatialapi.ProgressVisitor;
+import org.h2gis.drivers.utility.ReadBufferManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +22,22 @@ import java.util.List;
  */
 public abstract class FileEngine<Driver extends FileDriver> implements TableEngine {
     private Logger LOGGER = LoggerFactory.getLogger(FileEngine.class);
+    /** Progress of the full scans of the next table created by the current thread */
+    private static final ThreadLocal<ProgressVisitor> SCAN_PROGRESS = new ThreadLocal<ProgressVisitor>();
+
+    /**
+     * The linked table is created by a SQL request, the progress visitor can only reach the table through the
+     * thread that execute this request.
+     * @param progress Progress visitor advanced by each row of the full scans of the next table created by this
+     *                 thread, null to remove it
+     */
+    public static void setScanProgress(ProgressVisitor progress) {
+        if(progress == null) {
+            SCAN_PROGRESS.remove();
+        } else {
+            SCAN_PROGRESS.set(progress);
+        }
+    }
 
     @Override
     public Table createTable(CreateTableData data) {
@@ -37,6 +55,10 @@ public abstract class FileEngine<Driver extends FileDriver> implements TableEngi
             feedCreateTableData(driver, data);
             H2Table shpTable = new H2Table(driver, data);
             shpTable.init(data.session);
+            ProgressVisitor progress = SCAN_PROGRESS.get();
+            if(progress != null) {
+                shpTable.setScanProgress(progress.subProcess((int)driver.getRowCount()));
+            }
             return shpTable;
         } catch (IOException ex) {
             throw DbException.get(ErrorCode.IO_EXCEPTION_1,ex);
@@ -53,6 +75,33 @@ public abstract class FileEngine<Driver extends FileDriver> implements TableEngi
     protected  abstract Driver createDriver(File filePath, List<String> args) throws IOException;
 
 
+    /**
+     * @param args Additional argument, contains the file name as first argument
+     * @param index Argument position
+     * @return The argument value, null if the argument is not provided or empty
+     */
+    protected static String getArgument(List<String> args, int index) {
+        if(args.size() > index && !args.get(index).isEmpty()) {
+            return args.get(index);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @param args Additional argument, contains the file name as first argument
+     * @param index Position of the file access mode argument (AUTO, HEAP or MAPPED)
+     * @return The file access mode, AUTO if not provided
+     * @throws IOException If the argument value is not a file access mode
+     */
+    protected static ReadBufferManager.ReadMode getReadMode(List<String> args, int index) throws IOException {
+        try {
+            return ReadBufferManager.ReadMode.fromString(getArgument(args, index));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Unknown file access mode "+args.get(index)+", expected AUTO, HEAP or MAPPED", ex);
+        }
+    }
+
     /**
      * Add columns definition of the file into the CreateTableData instance.
      * @param data Data to initialise
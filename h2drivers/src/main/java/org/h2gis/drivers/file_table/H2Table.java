@@ -37,6 +37,9 @@ import org.h2.table.IndexColumn;
 import org.h2.table.TableBase;
 import org.h2.value.Value;
 import org.h2gis.drivers.FileDriver;
+import org.h2gis.drivers.FilterFileDriver;
+import org.h2gis.drivers.SpatialFileDriver;
+import org.h2gis.h2spatialapi.ProgressVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +54,7 @@ public class H2Table extends TableBase {
     private FileDriver driver;
     private static final Logger LOG = LoggerFactory.getLogger(H2Table.class);
     private H2TableIndex baseIndex;
+    private ArrayList<Index> indexes = new ArrayList<Index>();
     private Column rowIdColumn;
 
     public H2Table(FileDriver driver, CreateTableData data) throws IOException {
@@ -63,7 +67,26 @@ public class H2Table extends TableBase {
      * @param session database session
      */
     public void init(Session session) {
-        baseIndex = new H2TableIndex(driver,this,this.getId());
+        baseIndex = new H2TableIndex(driver,this,this.getId(), new H2TableStatistics(driver, getColumns()));
+        // The scan index must be the first one
+        indexes.clear();
+        indexes.add(baseIndex);
+        // Conditions on the fields are evaluated by the driver
+        if(driver instanceof FilterFileDriver) {
+            FilterFileDriver filterDriver = (FilterFileDriver) driver;
+            for(Column column : getColumns()) {
+                if(filterDriver.isFilterSupported(column.getColumnId())) {
+                    indexes.add(new H2TableFilterIndex(filterDriver, this, baseIndex, getId(), column));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param progress Progress visitor advanced by each row read by the full scans of this table
+     */
+    public void setScanProgress(ProgressVisitor progress) {
+        baseIndex.setScanProgress(progress);
     }
 
     @Override
@@ -87,8 +110,35 @@ public class H2Table extends TableBase {
 
     @Override
     public Index addIndex(Session session, String indexName, int indexId, IndexColumn[] cols, IndexType indexType, boolean create, String indexComment) {
-        // Index not managed
-        return null;
+        // Only spatial index on the geometry field is managed
+        if(indexType.isSpatial() && driver instanceof SpatialFileDriver && cols.length == 1 &&
+                cols[0].column.getColumnId() == ((SpatialFileDriver) driver).getGeometryFieldIndex()) {
+            H2TableSpatialIndex index = new H2TableSpatialIndex((SpatialFileDriver) driver, this, baseIndex, indexId,
+                    indexName, cols, indexType);
+            index.buildIndex();
+            index.setComment(indexComment);
+            indexes.add(index);
+            return index;
+        }
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1,"Only spatial index on the geometry field of linked files");
+    }
+
+    @Override
+    public void removeChildrenAndResources(Session session) {
+        super.removeChildrenAndResources(session);
+        // database.removeSchemaObject will call table.removeIndex
+        int indexId = 1;
+        while (indexes.size() > indexId) {
+            Index index = indexes.get(indexId);
+            if (index instanceof H2TableFilterIndex) {
+                // Created with the table, not a schema object
+                indexId++;
+            } else if (index.getName() != null) {
+                database.removeSchemaObject(session, index);
+            } else {
+                indexes.remove(indexId);
+            }
+        }
     }
 
     @Override
@@ -128,7 +178,7 @@ public class H2Table extends TableBase {
 
     @Override
     public ArrayList<Index> getIndexes() {
-        return new ArrayList<Index>();
+        return indexes;
     }
 
     @Override
@@ -0,0 +1,258 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.file_table;
+
+import org.h2.constant.ErrorCode;
+import org.h2.engine.Constants;
+import org.h2.engine.Session;
+import org.h2.expression.Comparison;
+import org.h2.index.BaseIndex;
+import org.h2.index.Cursor;
+import org.h2.index.IndexCondition;
+import org.h2.index.IndexType;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+import org.h2.table.TableFilter;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2gis.drivers.FilterFileDriver;
+
+import java.io.IOException;
+
+/**
+ * Index on a field of a {@link org.h2gis.drivers.FilterFileDriver}. This index does not store anything, equality and
+ * range conditions on the field are evaluated by the driver while the file is read, then only the matching rows are
+ * decoded. H2 still evaluates the conditions on the returned rows.
+ * The key is the row index [1-n].
+ * @author Nicolas Fortin
+ */
+public class H2TableFilterIndex extends BaseIndex {
+    /** Cost of comparing the field of a row with the condition values */
+    public static final double ROW_FILTER_COST = 1;
+    private FilterFileDriver driver;
+    private H2TableIndex baseIndex;
+    private int columnId;
+
+    public H2TableFilterIndex(FilterFileDriver driver, H2Table table, H2TableIndex baseIndex, int id, Column column) {
+        this.driver = driver;
+        this.baseIndex = baseIndex;
+        this.columnId = column.getColumnId();
+        IndexColumn indexColumn = new IndexColumn();
+        indexColumn.columnName = column.getName();
+        indexColumn.column = column;
+        initBaseIndex(table, id, table.getName() + "_" + column.getName() + "_FILTER",
+                new IndexColumn[] {indexColumn}, IndexType.createNonUnique(false));
+    }
+
+    @Override
+    public void checkRename() {
+        // Nothing to check
+    }
+
+    @Override
+    public String getCreateSQL() {
+        // The filter index is created with the table, it does not sort the rows
+        return null;
+    }
+
+    /**
+     * Strings are compared by the driver in the natural order of characters
+     * @param session database session
+     * @return True if the driver comparison is the same as the database comparison
+     */
+    private boolean canFilter(Session session) {
+        return !DataType.isStringType(columns[0].getType()) ||
+                CompareMode.OFF.equals(session.getDatabase().getCompareMode().getName());
+    }
+
+    @Override
+    public Row getRow(Session session, long key) {
+        return baseIndex.getRow(session, key);
+    }
+
+    @Override
+    public void close(Session session) {
+        // Nothing to close
+    }
+
+    @Override
+    public void add(Session session, Row row) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "add in linked files");
+    }
+
+    @Override
+    public void remove(Session session, Row row) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "remove in linked files");
+    }
+
+    @Override
+    public Cursor find(Session session, SearchRow first, SearchRow last) {
+        Value min = first == null ? null : first.getValue(columnId);
+        Value max = last == null ? null : last.getValue(columnId);
+        FilterFileDriver.RowFilter rowFilter = null;
+        // IS NULL conditions are not evaluated by the driver
+        if ((min != null || max != null) && min != ValueNull.INSTANCE && max != ValueNull.INSTANCE &&
+                canFilter(session)) {
+            rowFilter = driver.createRowFilter(columnId, min == null ? null : min.getObject(),
+                    max == null ? null : max.getObject());
+        }
+        return new FilterCursor(session, rowFilter);
+    }
+
+    @Override
+    public double getCost(Session session, int[] masks, TableFilter filter, SortOrder sortOrder) {
+        int passCount = getPassCount(filter);
+        if (masks != null && (masks[columnId] & (IndexCondition.EQUALITY | IndexCondition.RANGE)) != 0 &&
+                passCount > 0 && canFilter(session)) {
+            // All rows are compared, only the rows that satisfy the conditions are decoded
+            double selectivity = baseIndex.getStatistics().getSelectivity(session, masks, filter);
+            return Constants.COST_ROW_OFFSET + passCount * getRowCountApproximation() *
+                    (ROW_FILTER_COST + selectivity * H2TableIndex.ROW_DECODE_COST);
+        }
+        // Useless without condition on the field, prefer the scan index
+        return baseIndex.getCost(session, masks, filter, sortOrder) + 1;
+    }
+
+    /**
+     * H2 calls {@link #find(Session, SearchRow, SearchRow)} once for each value of an IN condition, and each call
+     * reads the whole file.
+     * @param filter Table filter, may be null
+     * @return Number of passes over the file, 0 if the number of values of an IN condition is unknown
+     */
+    private int getPassCount(TableFilter filter) {
+        int passCount = 1;
+        if (filter != null) {
+            for (IndexCondition condition : filter.getIndexConditions()) {
+                if (condition.getColumn() == null || condition.getColumn().getColumnId() != columnId) {
+                    continue;
+                }
+                if (condition.getCompareType() == Comparison.IN_LIST) {
+                    passCount = Math.max(passCount, condition.getExpressionList().size());
+                } else if (condition.getCompareType() == Comparison.IN_QUERY) {
+                    return 0;
+                }
+            }
+        }
+        return passCount;
+    }
+
+    @Override
+    public void remove(Session session) {
+        // Nothing to remove
+    }
+
+    @Override
+    public void truncate(Session session) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "truncate in linked files");
+    }
+
+    @Override
+    public boolean canGetFirstOrLast() {
+        return false;
+    }
+
+    @Override
+    public Cursor findFirstOrLast(Session session, boolean first) {
+        throw DbException.getUnsupportedException("findFirstOrLast on filter index");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(Session session) {
+        return driver.getRowCount();
+    }
+
+    @Override
+    public long getRowCountApproximation() {
+        return driver.getRowCount();
+    }
+
+    @Override
+    public long getDiskSpaceUsed() {
+        return 0;
+    }
+
+    /**
+     * Iterate over the rows accepted by the driver filter
+     */
+    private class FilterCursor implements Cursor {
+        private final Session session;
+        private final FilterFileDriver.RowFilter rowFilter;
+        private final long rowCount;
+        private long rowIndex = 0;
+        private Row row;
+
+        private FilterCursor(Session session, FilterFileDriver.RowFilter rowFilter) {
+            this.session = session;
+            this.rowFilter = rowFilter;
+            this.rowCount = driver.getRowCount();
+        }
+
+        @Override
+        public Row get() {
+            if (row == null && rowIndex > 0) {
+                row = baseIndex.getRow(session, rowIndex);
+            }
+            return row;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return get();
+        }
+
+        @Override
+        public boolean next() {
+            row = null;
+            try {
+                while (rowIndex < rowCount) {
+                    rowIndex++;
+                    if (rowFilter == null || rowFilter.accept(rowIndex - 1)) {
+                        return true;
+                    }
+                }
+            } catch (IOException ex) {
+                throw DbException.get(ErrorCode.IO_EXCEPTION_1, ex);
+            }
+            return false;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous on filter index");
+        }
+    }
+}
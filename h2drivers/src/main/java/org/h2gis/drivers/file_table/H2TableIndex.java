@@ -26,6 +26,7 @@
 package org.h2gis.drivers.file_table;
 
 import org.h2.constant.ErrorCode;
+import org.h2.engine.Constants;
 import org.h2.engine.Session;
 import org.h2.index.BaseIndex;
 import org.h2.index.Cursor;
@@ -40,8 +41,9 @@ import org.h2.table.Table;
 import org.h2.table.TableFilter;
 import org.h2.value.DataType;
 import org.h2.value.Value;
-import org.h2.value.ValueLong;
+import org.h2.value.ValueNull;
 import org.h2gis.drivers.FileDriver;
+import org.h2gis.h2spatialapi.ProgressVisitor;
 
 import java.io.IOException;
 
@@ -50,10 +52,17 @@ import java.io.IOException;
  * @author Nicolas Fortin
  */
 public class H2TableIndex extends BaseIndex {
+    /** Cost of reading the fields used by the conditions, for each row of the file */
+    public static final double ROW_READ_COST = 2;
+    /** Cost of decoding the other fields of a row that satisfy the conditions */
+    public static final double ROW_DECODE_COST = 8;
     private FileDriver driver;
+    private H2TableStatistics statistics;
+    private ProgressVisitor scanProgress;
 
-    public H2TableIndex(FileDriver driver, Table table, int id) {
+    public H2TableIndex(FileDriver driver, Table table, int id, H2TableStatistics statistics) {
         this.driver = driver;
+        this.statistics = statistics;
         IndexColumn indexColumn = new IndexColumn();
         indexColumn.columnName = "key";
         indexColumn.column = new Column("key",Value.LONG);
@@ -65,26 +74,46 @@ public class H2TableIndex extends BaseIndex {
         // Nothing to check
     }
 
+    @Override
+    public String getCreateSQL() {
+        // The scan index is created with the table
+        return null;
+    }
+
     public FileDriver getDriver() {
         return driver;
     }
 
-    @Override
-    public Row getRow(Session session, long key) {
+    /**
+     * @param progress Progress visitor advanced by each row read by the cursors of this index, null by default
+     */
+    public void setScanProgress(ProgressVisitor progress) {
+        this.scanProgress = progress;
+    }
+
+    /**
+     * @return File statistics, computed on the first call
+     */
+    public H2TableStatistics getStatistics() {
         try {
-            Object[] driverRow = driver.getRow(key - 1);
-            Value[] values = new Value[driverRow.length];
-            Column[] columns = table.getColumns();
-            for(int idField=0;idField<driverRow.length;idField++) {
-                // TODO in H2, switch on type parameter instead of if elseif
-                values[idField] = DataType.convertToValue(session, driverRow[idField], columns[idField].getType());
-            }
-            Row row =  new Row(values, Row.MEMORY_CALCULATE);
-            row.setKey(key);
-            return row;
+            statistics.compute();
         } catch (IOException ex) {
             throw DbException.get(ErrorCode.IO_EXCEPTION_1,ex);
         }
+        return statistics;
+    }
+
+    /**
+     * Fields are read from the file only when H2 request them.
+     * @param session database session
+     * @param key row index [1-n]
+     * @return Row instance
+     */
+    @Override
+    public Row getRow(Session session, long key) {
+        Row row = new LazyRow(driver, session, table.getColumns(), key);
+        row.setKey(key);
+        return row;
     }
 
     @Override
@@ -109,7 +138,9 @@ public class H2TableIndex extends BaseIndex {
 
     @Override
     public double getCost(Session session, int[] masks,TableFilter filter ,SortOrder sortOrder) {
-        return getRowCount(session);
+        // All rows are read, but the fields are decoded lazily. Other fields are decoded only on selected rows.
+        double selectivity = getStatistics().getSelectivity(session, masks, filter);
+        return Constants.COST_ROW_OFFSET + getRowCount(session) * (ROW_READ_COST + selectivity * ROW_DECODE_COST);
     }
 
     @Override
@@ -157,6 +188,55 @@ public class H2TableIndex extends BaseIndex {
         return true;
     }
 
+    /**
+     * Row that decode the field values on the first access.
+     */
+    private static class LazyRow extends Row {
+        private final FileDriver driver;
+        private final Session session;
+        private final Column[] columns;
+        private final Value[] values;
+        private final long rowId;
+
+        private LazyRow(FileDriver driver, Session session, Column[] columns, long key) {
+            this(driver, session, columns, key, new Value[columns.length]);
+        }
+
+        private LazyRow(FileDriver driver, Session session, Column[] columns, long key, Value[] values) {
+            super(values, Row.MEMORY_CALCULATE);
+            this.driver = driver;
+            this.session = session;
+            this.columns = columns;
+            this.values = values;
+            this.rowId = key - 1;
+        }
+
+        @Override
+        public Value getValue(int i) {
+            Value value = values[i];
+            if(value == null) {
+                try {
+                    Object field = driver.getField(rowId, i);
+                    // TODO in H2, switch on type parameter instead of if elseif
+                    value = field == null ? ValueNull.INSTANCE :
+                            DataType.convertToValue(session, field, columns[i].getType());
+                } catch (IOException ex) {
+                    throw DbException.get(ErrorCode.IO_EXCEPTION_1,ex);
+                }
+                values[i] = value;
+            }
+            return value;
+        }
+
+        @Override
+        public Value[] getValueList() {
+            for(int i = 0; i < values.length; i++) {
+                getValue(i);
+            }
+            return values;
+        }
+    }
+
     private static class SHPCursor implements Cursor {
         private H2TableIndex tIndex;
         private long rowIndex;
@@ -193,6 +273,9 @@ public class H2TableIndex extends BaseIndex {
         public boolean next() {
             if(rowIndex < tIndex.getRowCount(session) && (end == null || rowIndex < end.getKey())) {
                 rowIndex ++;
+                if(tIndex.scanProgress != null) {
+                    tIndex.scanProgress.endStep();
+                }
                 return true;
             } else {
                 return false;
@@ -0,0 +1,275 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.file_table;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import org.h2.constant.ErrorCode;
+import org.h2.engine.Session;
+import org.h2.index.BaseIndex;
+import org.h2.index.Cursor;
+import org.h2.index.IndexCondition;
+import org.h2.index.IndexType;
+import org.h2.index.SpatialIndex;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.IndexColumn;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueGeometry;
+import org.h2.value.ValueNull;
+import org.h2gis.drivers.SpatialFileDriver;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In memory R-Tree on the geometry column of a {@link org.h2gis.drivers.SpatialFileDriver}.
+ * The tree is built using the envelope provided by the driver, geometries are not decoded.
+ * If the file comes with its own spatial index, this index is used instead of the R-Tree.
+ * The key is the row index [1-n].
+ * @author Nicolas Fortin
+ */
+public class H2TableSpatialIndex extends BaseIndex implements SpatialIndex {
+    private SpatialFileDriver driver;
+    private H2TableIndex baseIndex;
+    private STRtree rTree;
+    private int geometryColumnId;
+
+    public H2TableSpatialIndex(SpatialFileDriver driver, H2Table table, H2TableIndex baseIndex, int id, String indexName,
+                               IndexColumn[] columns, IndexType indexType) {
+        if (columns.length != 1) {
+            throw DbException.getUnsupportedException("Can only index one column");
+        }
+        this.driver = driver;
+        this.baseIndex = baseIndex;
+        initBaseIndex(table, id, indexName, columns, indexType);
+        geometryColumnId = columns[0].column.getColumnId();
+    }
+
+    /**
+     * Read the envelope of each row and fill the R-Tree
+     */
+    public void buildIndex() {
+        if (driver.hasSpatialIndex()) {
+            return;
+        }
+        try {
+            STRtree tree = new STRtree();
+            final long rowCount = driver.getRowCount();
+            for (long rowId = 0; rowId < rowCount; rowId++) {
+                Envelope envelope = driver.getEnvelope(rowId);
+                if (envelope != null) {
+                    tree.insert(envelope, rowId + 1);
+                }
+            }
+            tree.build();
+            rTree = tree;
+        } catch (IOException ex) {
+            throw DbException.get(ErrorCode.IO_EXCEPTION_1, ex);
+        }
+    }
+
+    @Override
+    public void checkRename() {
+        // Nothing to check
+    }
+
+    @Override
+    public Row getRow(Session session, long key) {
+        return baseIndex.getRow(session, key);
+    }
+
+    @Override
+    public void close(Session session) {
+        rTree = null;
+    }
+
+    @Override
+    public void add(Session session, Row row) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "add in linked files");
+    }
+
+    @Override
+    public void remove(Session session, Row row) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "remove in linked files");
+    }
+
+    @Override
+    public Cursor find(Session session, SearchRow first, SearchRow last) {
+        // Without intersection condition, all rows are returned
+        return baseIndex.find(session, null, null);
+    }
+
+    @Override
+    public Cursor findByGeometry(TableFilter filter, SearchRow intersection) {
+        Session session = filter.getSession();
+        if (intersection == null) {
+            return find(session, null, null);
+        }
+        Value value = intersection.getValue(geometryColumnId);
+        if (value == null || value == ValueNull.INSTANCE) {
+            return find(session, null, null);
+        }
+        Geometry geometry = ((ValueGeometry) value.convertTo(Value.GEOMETRY)).getGeometry();
+        if (driver.hasSpatialIndex()) {
+            return new KeysCursor(session, queryFileIndex(geometry.getEnvelopeInternal()));
+        }
+        if (rTree == null) {
+            buildIndex();
+        }
+        List items = rTree.query(geometry.getEnvelopeInternal());
+        long[] keys = new long[items.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (Long) items.get(i);
+        }
+        // Read the file in the natural order
+        Arrays.sort(keys);
+        return new KeysCursor(session, keys);
+    }
+
+    /**
+     * The file index returns the rows of the intersecting tree nodes, the row envelope is checked.
+     * @param envelope Query envelope
+     * @return Sorted keys of the rows that intersects the envelope
+     */
+    private long[] queryFileIndex(Envelope envelope) {
+        try {
+            long[] rowIds = driver.querySpatialIndex(envelope);
+            int count = 0;
+            for (long rowId : rowIds) {
+                Envelope rowEnvelope = driver.getEnvelope(rowId);
+                if (rowEnvelope != null && rowEnvelope.intersects(envelope)) {
+                    rowIds[count++] = rowId + 1;
+                }
+            }
+            return Arrays.copyOf(rowIds, count);
+        } catch (IOException ex) {
+            throw DbException.get(ErrorCode.IO_EXCEPTION_1, ex);
+        }
+    }
+
+    @Override
+    public double getCost(Session session, int[] masks, TableFilter filter, SortOrder sortOrder) {
+        if (masks != null && (masks[geometryColumnId] & IndexCondition.SPATIAL_INTERSECTS) != 0) {
+            // Only the rows that intersects the file extent part covered by the condition are read
+            H2TableStatistics statistics = baseIndex.getStatistics();
+            double candidates = getRowCountApproximation() *
+                    statistics.getSpatialSelectivity(session, filter, geometryColumnId);
+            double selectivity = statistics.getSelectivity(session, masks, filter);
+            return 3 + candidates * H2TableIndex.ROW_READ_COST +
+                    getRowCountApproximation() * selectivity * H2TableIndex.ROW_DECODE_COST;
+        }
+        // Useless without intersection condition, prefer the scan index
+        return baseIndex.getCost(session, masks, filter, sortOrder) + 1;
+    }
+
+    @Override
+    public void remove(Session session) {
+        rTree = null;
+    }
+
+    @Override
+    public void truncate(Session session) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "truncate in linked files");
+    }
+
+    @Override
+    public boolean canGetFirstOrLast() {
+        return false;
+    }
+
+    @Override
+    public Cursor findFirstOrLast(Session session, boolean first) {
+        throw DbException.getUnsupportedException("findFirstOrLast on spatial index");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(Session session) {
+        return driver.getRowCount();
+    }
+
+    @Override
+    public long getRowCountApproximation() {
+        return driver.getRowCount();
+    }
+
+    @Override
+    public long getDiskSpaceUsed() {
+        return 0;
+    }
+
+    /**
+     * Iterate over the row keys returned by the R-Tree
+     */
+    private class KeysCursor implements Cursor {
+        private final Session session;
+        private final long[] keys;
+        private int position = -1;
+        private Row row;
+
+        private KeysCursor(Session session, long[] keys) {
+            this.session = session;
+            this.keys = keys;
+        }
+
+        @Override
+        public Row get() {
+            if (row == null && position >= 0 && position < keys.length) {
+                row = baseIndex.getRow(session, keys[position]);
+            }
+            return row;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return get();
+        }
+
+        @Override
+        public boolean next() {
+            row = null;
+            position++;
+            return position < keys.length;
+        }
+
+        @Override
+        public boolean previous() {
+            row = null;
+            position--;
+            return position >= 0;
+        }
+    }
+}
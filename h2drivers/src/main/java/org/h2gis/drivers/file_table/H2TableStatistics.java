@@ -0,0 +1,311 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.file_table;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import org.h2.engine.Session;
+import org.h2.expression.Comparison;
+import org.h2.expression.Expression;
+import org.h2.index.IndexCondition;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueGeometry;
+import org.h2.value.ValueNull;
+import org.h2gis.drivers.FileDriver;
+import org.h2gis.drivers.SpatialFileDriver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cheap statistics of a linked file used by the planner: extent of the geometry field, min and max of numeric
+ * fields and number of distinct values. Values are estimated on a sample of the rows.
+ * @author Nicolas Fortin
+ */
+public class H2TableStatistics {
+    /** Maximum number of rows read to compute the statistics */
+    public static final int SAMPLE_SIZE = 1000;
+    /** Selectivity of a range condition when the bound is not known */
+    private static final double DEFAULT_RANGE_SELECTIVITY = 0.3;
+    /** Selectivity of a spatial condition when the geometry is not known */
+    private static final double DEFAULT_SPATIAL_SELECTIVITY = 0.25;
+    private final FileDriver driver;
+    private final Column[] columns;
+    private boolean computed = false;
+    private long rowCount;
+    private Envelope extent;
+    private long[] distinctCount;
+    private double[] min;
+    private double[] max;
+
+    public H2TableStatistics(FileDriver driver, Column[] columns) {
+        this.driver = driver;
+        this.columns = columns;
+    }
+
+    /**
+     * Read the file header and a sample of the rows. Done once, on the first call.
+     * @throws IOException Read error
+     */
+    public synchronized void compute() throws IOException {
+        if(computed) {
+            return;
+        }
+        rowCount = driver.getRowCount();
+        int geometryField = -1;
+        if(driver instanceof SpatialFileDriver) {
+            geometryField = ((SpatialFileDriver) driver).getGeometryFieldIndex();
+            extent = ((SpatialFileDriver) driver).getExtent();
+        }
+        final int columnCount = columns.length;
+        distinctCount = new long[columnCount];
+        min = new double[columnCount];
+        max = new double[columnCount];
+        final int sampleSize = (int)Math.min(SAMPLE_SIZE, rowCount);
+        List<Map<Object, Integer>> occurrences = new ArrayList<Map<Object, Integer>>(columnCount);
+        for(int columnId = 0; columnId < columnCount; columnId++) {
+            min[columnId] = Double.NaN;
+            max[columnId] = Double.NaN;
+            occurrences.add(new HashMap<Object, Integer>());
+        }
+        // Read all the fields of a sampled row before the next row, some drivers decode whole rows
+        for(int sample = 0; sample < sampleSize; sample++) {
+            // Rows are spread over the whole file
+            long rowId = sample * rowCount / sampleSize;
+            for(int columnId = 0; columnId < columnCount; columnId++) {
+                if(columnId == geometryField) {
+                    continue;
+                }
+                Object value = driver.getField(rowId, columnId);
+                if(value == null) {
+                    continue;
+                }
+                Map<Object, Integer> columnOccurrences = occurrences.get(columnId);
+                Integer count = columnOccurrences.get(value);
+                columnOccurrences.put(value, count == null ? 1 : count + 1);
+                if(value instanceof Number) {
+                    double number = ((Number) value).doubleValue();
+                    if(Double.isNaN(min[columnId]) || number < min[columnId]) {
+                        min[columnId] = number;
+                    }
+                    if(Double.isNaN(max[columnId]) || number > max[columnId]) {
+                        max[columnId] = number;
+                    }
+                }
+            }
+        }
+        for(int columnId = 0; columnId < columnCount; columnId++) {
+            if(columnId == geometryField || sampleSize == 0) {
+                distinctCount[columnId] = rowCount;
+            } else {
+                distinctCount[columnId] = estimateDistinct(occurrences.get(columnId), sampleSize, rowCount);
+            }
+        }
+        computed = true;
+    }
+
+    /**
+     * Duj1 estimator of Haas and Naughton, the number of distinct values of the sample is scaled using the
+     * number of values that appear only once.
+     * @param occurrences Occurrences of each value in the sample
+     * @param sampleSize Number of sampled rows
+     * @param rowCount Number of rows in the file
+     * @return Estimated number of distinct values in the file
+     */
+    private static long estimateDistinct(Map<Object, Integer> occurrences, int sampleSize, long rowCount) {
+        int distinct = occurrences.size();
+        if(distinct == 0) {
+            return 1;
+        }
+        int uniques = 0;
+        for(Integer count : occurrences.values()) {
+            if(count == 1) {
+                uniques++;
+            }
+        }
+        double estimate = (double) sampleSize * distinct /
+                (sampleSize - uniques + (double) uniques * sampleSize / rowCount);
+        return Math.max(distinct, Math.min(rowCount, Math.round(estimate)));
+    }
+
+    /**
+     * @return Extent of the geometry field, null if unknown
+     */
+    public Envelope getExtent() {
+        return extent;
+    }
+
+    /**
+     * @param columnId Column index
+     * @return Estimated number of distinct values
+     */
+    public long getDistinctCount(int columnId) {
+        return distinctCount[columnId];
+    }
+
+    /**
+     * @param columnId Column index
+     * @return Minimum value of the sample, NaN if the column is not numeric
+     */
+    public double getMin(int columnId) {
+        return min[columnId];
+    }
+
+    /**
+     * @param columnId Column index
+     * @return Maximum value of the sample, NaN if the column is not numeric
+     */
+    public double getMax(int columnId) {
+        return max[columnId];
+    }
+
+    /**
+     * Estimate the fraction of rows that satisfy the conditions of the filter.
+     * @param session Database session
+     * @param masks Condition mask of each column, may be null
+     * @param filter Table filter, may be null
+     * @return Selectivity [1/rowCount-1]
+     */
+    public double getSelectivity(Session session, int[] masks, TableFilter filter) {
+        if(masks == null || rowCount == 0) {
+            return 1;
+        }
+        double selectivity = 1;
+        for(int columnId = 0; columnId < masks.length && columnId < columns.length; columnId++) {
+            int mask = masks[columnId];
+            if((mask & IndexCondition.EQUALITY) == IndexCondition.EQUALITY) {
+                selectivity /= Math.max(1, distinctCount[columnId]);
+            } else if((mask & IndexCondition.RANGE) != 0) {
+                selectivity *= getRangeSelectivity(session, filter, columnId);
+            }
+            if((mask & IndexCondition.SPATIAL_INTERSECTS) != 0) {
+                selectivity *= getSpatialSelectivity(session, filter, columnId);
+            }
+        }
+        return Math.max(selectivity, 1. / rowCount);
+    }
+
+    /**
+     * @param session Database session
+     * @param filter Table filter, may be null
+     * @param columnId Geometry column index
+     * @return Estimated fraction of rows that intersects the constant geometry of the filter
+     */
+    public double getSpatialSelectivity(Session session, TableFilter filter, int columnId) {
+        if(extent == null || extent.isNull() || extent.getArea() <= 0) {
+            return DEFAULT_SPATIAL_SELECTIVITY;
+        }
+        Value value = getConstantValue(session, filter, columnId, Comparison.SPATIAL_INTERSECTS);
+        if(value == null) {
+            return DEFAULT_SPATIAL_SELECTIVITY;
+        }
+        Geometry geometry = ((ValueGeometry) value.convertTo(Value.GEOMETRY)).getGeometry();
+        Envelope intersection = extent.intersection(geometry.getEnvelopeInternal());
+        if(intersection.isNull()) {
+            return 1. / Math.max(1, rowCount);
+        }
+        return intersection.getArea() / extent.getArea();
+    }
+
+    private double getRangeSelectivity(Session session, TableFilter filter, int columnId) {
+        final double range = max[columnId] - min[columnId];
+        if(Double.isNaN(range) || range <= 0) {
+            return DEFAULT_RANGE_SELECTIVITY;
+        }
+        double start = min[columnId];
+        double end = max[columnId];
+        boolean bounded = false;
+        for(IndexCondition condition : getConditions(filter, columnId)) {
+            Value value = getConstantValue(session, condition);
+            if(value == null) {
+                continue;
+            }
+            double bound = value.getDouble();
+            if(condition.isStart()) {
+                start = Math.max(start, bound);
+                bounded = true;
+            }
+            if(condition.isEnd()) {
+                end = Math.min(end, bound);
+                bounded = true;
+            }
+        }
+        if(!bounded) {
+            return DEFAULT_RANGE_SELECTIVITY;
+        }
+        return Math.max(0, end - start) / range;
+    }
+
+    /**
+     * @param session Database session
+     * @param filter Table filter, may be null
+     * @param columnId Column index
+     * @param compareType Comparison type of the condition, one of the {@link Comparison} constants
+     * @return The constant value of the first matching condition, null if there is none
+     */
+    private Value getConstantValue(Session session, TableFilter filter, int columnId, int compareType) {
+        for(IndexCondition condition : getConditions(filter, columnId)) {
+            if(condition.getCompareType() == compareType) {
+                Value value = getConstantValue(session, condition);
+                if(value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param session Database session
+     * @param condition Index condition
+     * @return The value of the condition if it does not depend on other tables or parameters, null otherwise
+     */
+    private static Value getConstantValue(Session session, IndexCondition condition) {
+        Expression expression = condition.getExpression();
+        if(expression == null || !expression.isConstant()) {
+            return null;
+        }
+        Value value = expression.getValue(session);
+        return value == null || value == ValueNull.INSTANCE ? null : value;
+    }
+
+    private static ArrayList<IndexCondition> getConditions(TableFilter filter, int columnId) {
+        ArrayList<IndexCondition> conditions = new ArrayList<IndexCondition>();
+        if(filter != null) {
+            for(IndexCondition condition : filter.getIndexConditions()) {
+                if(condition.getColumn() != null && condition.getColumn().getColumnId() == columnId) {
+                    conditions.add(condition);
+                }
+            }
+        }
+        return conditions;
+    }
+}
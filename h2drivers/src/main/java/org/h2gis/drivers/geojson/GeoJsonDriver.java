@@ -0,0 +1,344 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.geojson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.h2gis.drivers.FileDriver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read the features of a GeoJSON FeatureCollection file without copying them.
+ * The byte position and length of each feature are found by a single pass on
+ * the file, then a row is read by parsing only its feature. The feature index
+ * is saved in a sidecar file (.gjx) next to the GeoJSON file and reused while
+ * the GeoJSON file is not modified.
+ *
+ * As with {@link GeoJsonReaderDriver}, the columns are defined by the first
+ * feature. If the features do not have properties, the ID column contains the
+ * feature number.
+ *
+ * @author Nicolas Fortin
+ */
+public class GeoJsonDriver implements FileDriver {
+    /** Feature index file extension */
+    public static final String INDEX_EXTENSION = "gjx";
+    private static final byte[] INDEX_SIGNATURE = new byte[]{'G', 'J', 'X'};
+    private static final byte INDEX_VERSION = 1;
+    private final JsonFactory jsFactory = GeoJsonFeatureParser.createJsonFactory();
+    private final GeoJsonFeatureParser featureParser = new GeoJsonFeatureParser();
+    private final List<Object> values = new ArrayList<Object>();
+    private File file;
+    private FileChannel channel;
+    private int featureCount = 0;
+    private long[] featureOffsets = new long[0];
+    private int[] featureLengths = new int[0];
+    private List<String> columnNames;
+    private boolean hasProperties;
+    private ByteBuffer featureBuffer = ByteBuffer.allocate(4096);
+    private long cachedRowId = -1;
+    private Object[] cachedRow;
+
+    /**
+     * Init the driver from the GeoJSON file, the feature index is written next
+     * to the file if it does not exist or if it is outdated.
+     *
+     * @param file GeoJSON file path
+     * @throws IOException
+     */
+    public void initDriverFromFile(File file) throws IOException {
+        initDriverFromFile(file, true);
+    }
+
+    /**
+     * Init the driver from the GeoJSON file.
+     *
+     * @param file GeoJSON file path
+     * @param saveIndex If true the feature index is written next to the file,
+     * otherwise the index is only kept in memory.
+     * @throws IOException
+     */
+    public void initDriverFromFile(File file, boolean saveIndex) throws IOException {
+        this.file = file;
+        File indexFile = getIndexFile(file);
+        if (!readIndex(indexFile)) {
+            buildIndex();
+            if (saveIndex) {
+                writeIndex(indexFile);
+            }
+        }
+        channel = new FileInputStream(file).getChannel();
+        // The columns are defined by the first feature
+        columnNames = new ArrayList<String>();
+        values.clear();
+        if (featureCount == 0) {
+            // Empty FeatureCollection, the table has only a geometry column
+            columnNames.add("THE_GEOM");
+            hasProperties = true;
+        } else {
+            if (!parseFeature(0, columnNames)) {
+                throw new IOException("The first feature must contains a geomtry field.");
+            }
+            hasProperties = featureParser.isPropertiesFound();
+            if (!hasProperties) {
+                columnNames.add("ID");
+            }
+        }
+        columnNames = Collections.unmodifiableList(columnNames);
+    }
+
+    /**
+     * @param file GeoJSON file path
+     * @return The feature index file path
+     */
+    public static File getIndexFile(File file) {
+        String path = file.getPath();
+        int extensionPos = path.lastIndexOf('.');
+        if (extensionPos > path.lastIndexOf(File.separatorChar)) {
+            path = path.substring(0, extensionPos);
+        }
+        return new File(path + "." + INDEX_EXTENSION);
+    }
+
+    /**
+     * @return Column names, defined by the first feature
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public long getRowCount() {
+        return featureCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        cachedRow = null;
+        cachedRowId = -1;
+    }
+
+    @Override
+    public Object[] getRow(long rowId) throws IOException {
+        if (rowId != cachedRowId) {
+            values.clear();
+            parseFeature((int) rowId, null);
+            Object[] row = new Object[columnNames.size()];
+            int valueCount = hasProperties ? row.length : row.length - 1;
+            for (int i = 0; i < Math.min(valueCount, values.size()); i++) {
+                row[i] = values.get(i);
+            }
+            if (!hasProperties) {
+                row[row.length - 1] = (int) rowId + 1;
+            }
+            cachedRow = row;
+            cachedRowId = rowId;
+        }
+        return cachedRow;
+    }
+
+    @Override
+    public Object getField(long rowId, int columnId) throws IOException {
+        // The whole feature is parsed, the row is kept for the next fields
+        return getRow(rowId)[columnId];
+    }
+
+    /**
+     * Read and parse one feature of the file.
+     *
+     * @param featureId Feature index
+     * @param names If not null, the column names are appended
+     * @return True if the feature contains a geometry
+     * @throws IOException
+     */
+    private boolean parseFeature(int featureId, List<String> names) throws IOException {
+        int length = featureLengths[featureId];
+        if (featureBuffer.capacity() < length) {
+            featureBuffer = ByteBuffer.allocate(Math.max(length, featureBuffer.capacity() * 2));
+        }
+        featureBuffer.clear();
+        featureBuffer.limit(length);
+        long position = featureOffsets[featureId];
+        while (featureBuffer.hasRemaining()) {
+            if (channel.read(featureBuffer, position + featureBuffer.position()) < 0) {
+                throw new EOFException("Premature end of GeoJSON file, the file has been modified");
+            }
+        }
+        JsonParser jp = jsFactory.createParser(featureBuffer.array(), 0, length);
+        try {
+            jp.nextToken(); // START_OBJECT {
+            return featureParser.parseFeature(jp, values, names);
+        } catch (SQLException ex) {
+            throw new IOException(ex.getLocalizedMessage(), ex);
+        } finally {
+            jp.close();
+        }
+    }
+
+    /**
+     * Find the position and the length of each feature of the
+     * FeatureCollection.
+     *
+     * @throws IOException
+     */
+    private void buildIndex() throws IOException {
+        featureCount = 0;
+        featureOffsets = new long[1024];
+        featureLengths = new int[1024];
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            JsonParser jp = jsFactory.createParser(fis);
+            try {
+                if (jp.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Malformed GeoJSON file. Expected a FeatureCollection object");
+                }
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    String member = jp.getCurrentName();
+                    JsonToken token = jp.nextToken();
+                    if (member.equalsIgnoreCase("features") && token == JsonToken.START_ARRAY) {
+                        while (jp.nextToken() == JsonToken.START_OBJECT) {
+                            long start = jp.getTokenLocation().getByteOffset();
+                            if (start < 0) {
+                                throw new IOException("Unsupported GeoJSON file encoding, expected UTF-8");
+                            }
+                            jp.skipChildren(); // END_OBJECT } feature
+                            addFeature(start, (int) (jp.getCurrentLocation().getByteOffset() - start));
+                        }
+                        if (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+                            throw new IOException("Malformed GeoJSON file. Expected a Feature object, found " + jp.getText());
+                        }
+                    } else {
+                        // Other members are ignored
+                        jp.skipChildren();
+                    }
+                }
+            } finally {
+                jp.close();
+            }
+        } finally {
+            fis.close();
+        }
+    }
+
+    private void addFeature(long offset, int length) {
+        if (featureCount == featureOffsets.length) {
+            featureOffsets = Arrays.copyOf(featureOffsets, featureCount * 2);
+            featureLengths = Arrays.copyOf(featureLengths, featureCount * 2);
+        }
+        featureOffsets[featureCount] = offset;
+        featureLengths[featureCount] = length;
+        featureCount++;
+    }
+
+    /**
+     * Load the feature index if it has been written for the current version of
+     * the GeoJSON file.
+     *
+     * @param indexFile Feature index file path
+     * @return True if the index has been loaded
+     */
+    private boolean readIndex(File indexFile) {
+        if (!indexFile.exists() || indexFile.lastModified() < file.lastModified()) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                byte[] signature = new byte[INDEX_SIGNATURE.length];
+                in.readFully(signature);
+                if (!Arrays.equals(signature, INDEX_SIGNATURE) || in.readByte() != INDEX_VERSION
+                        || in.readLong() != file.length() || in.readLong() != file.lastModified()) {
+                    return false;
+                }
+                int count = in.readInt();
+                long[] offsets = new long[count];
+                int[] lengths = new int[count];
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = in.readLong();
+                    lengths[i] = in.readInt();
+                }
+                featureOffsets = offsets;
+                featureLengths = lengths;
+                featureCount = count;
+                return true;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            // Damaged index, it is built again
+            return false;
+        }
+    }
+
+    /**
+     * Save the feature index. The index is only kept in memory if the file
+     * cannot be written.
+     *
+     * @param indexFile Feature index file path
+     */
+    private void writeIndex(File indexFile) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            try {
+                out.write(INDEX_SIGNATURE);
+                out.writeByte(INDEX_VERSION);
+                out.writeLong(file.length());
+                out.writeLong(file.lastModified());
+                out.writeInt(featureCount);
+                for (int i = 0; i < featureCount; i++) {
+                    out.writeLong(featureOffsets[i]);
+                    out.writeInt(featureLengths[i]);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException ex) {
+            // Read only folder
+            indexFile.delete();
+        }
+    }
+}
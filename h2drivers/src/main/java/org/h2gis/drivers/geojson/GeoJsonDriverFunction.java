@@ -24,6 +24,7 @@
  */
 package org.h2gis.drivers.geojson;
 
+import org.h2gis.drivers.utility.FileUtil;
 import org.h2gis.h2spatialapi.DriverFunction;
 import org.h2gis.h2spatialapi.ProgressVisitor;
 import org.h2gis.utilities.JDBCUtilities;
@@ -35,11 +36,18 @@ import java.sql.SQLException;
 
 /**
  * GeoJSON driver to import a GeoJSON file and export a spatial table in a
- * GeoJSON 1.0 file.
+ * GeoJSON 1.0 file. Files with the gz extension (ex: data.geojson.gz) are
+ * read and written through gzip.
  * 
  * @author Erwan Bocher
  */
 public class GeoJsonDriverFunction implements DriverFunction {
+    public static String DESCRIPTION = "GeoJSON 1.0";
+    /**
+     * File extensions of GeoJSON text sequences, one feature by line. The features of a geojsons file start with
+     * the RFC 8142 record separator.
+     */
+    private static final String[] SEQUENCE_FORMATS = new String[]{"geojsonl", "geojsons"};
 
     @Override
     public IMPORT_DRIVER_TYPE getImportDriverType() {
@@ -48,18 +56,20 @@ public class GeoJsonDriverFunction implements DriverFunction {
 
     @Override
     public String[] getImportFormats() {
-        return new String[]{"geojson"};
+        return new String[]{"geojson", SEQUENCE_FORMATS[0], SEQUENCE_FORMATS[1]};
     }
 
     @Override
     public String[] getExportFormats() {
-        return new String[]{"geojson"};
+        return new String[]{"geojson", SEQUENCE_FORMATS[0], SEQUENCE_FORMATS[1]};
     }
 
     @Override
     public String getFormatDescription(String format) {
         if (format.equalsIgnoreCase("geojson")) {
-            return "GeoJSON 1.0";
+            return DESCRIPTION;
+        } else if (isSequenceFormat(format)) {
+            return "GeoJSON text sequence";
         } else {
             return "";
         }
@@ -75,7 +85,23 @@ public class GeoJsonDriverFunction implements DriverFunction {
 
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress) throws SQLException, IOException {
-        GeoJsonReaderDriver geoJsonReaderDriver = new GeoJsonReaderDriver(connection, tableReference, fileName);
-        geoJsonReaderDriver.read(progress);
+        if (isSequenceFormat(FileUtil.getExtension(fileName))) {
+            new GeoJsonSeqReaderDriver(connection, tableReference, fileName).read(progress);
+        } else {
+            new GeoJsonReaderDriver(connection, tableReference, fileName).read(progress);
+        }
+    }
+
+    /**
+     * @param extension File extension
+     * @return True if the file contains a GeoJSON text sequence
+     */
+    static boolean isSequenceFormat(String extension) {
+        for (String format : SEQUENCE_FORMATS) {
+            if (format.equalsIgnoreCase(extension)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
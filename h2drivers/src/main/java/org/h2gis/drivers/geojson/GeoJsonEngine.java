@@ -0,0 +1,87 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.geojson;
+
+import com.vividsolutions.jts.geom.Geometry;
+import org.h2.command.ddl.CreateTableData;
+import org.h2.table.Column;
+import org.h2.value.Value;
+import org.h2gis.drivers.file_table.FileEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * GeoJSON Table factory.
+ * Table engine arguments are the file path and the optional feature index mode: TRUE (default) to save the
+ * feature index next to the file, FALSE to keep it in memory.
+ * @author Nicolas Fortin
+ */
+public class GeoJsonEngine extends FileEngine<GeoJsonDriver> {
+
+    @Override
+    protected GeoJsonDriver createDriver(File filePath, List<String> args) throws IOException {
+        GeoJsonDriver driver = new GeoJsonDriver();
+        String saveIndex = getArgument(args, 1);
+        driver.initDriverFromFile(filePath, saveIndex == null || Boolean.parseBoolean(saveIndex));
+        return driver;
+    }
+
+    @Override
+    protected void feedCreateTableData(GeoJsonDriver driver, CreateTableData data) throws IOException {
+        if(data.columns.isEmpty()) {
+            List<String> columnNames = driver.getColumnNames();
+            if(driver.getRowCount() == 0) {
+                // Empty FeatureCollection, only the geometry column is known
+                data.columns.add(new Column(columnNames.get(0), Value.GEOMETRY));
+            } else {
+                Object[] firstRow = driver.getRow(0);
+                for(int i = 0; i < columnNames.size(); i++) {
+                    data.columns.add(new Column(columnNames.get(i), getValueType(firstRow[i])));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param value Value of the first feature
+     * @return H2 {@link Value} type, VARCHAR for null values
+     */
+    private static int getValueType(Object value) {
+        if(value instanceof Geometry) {
+            return Value.GEOMETRY;
+        } else if(value instanceof Boolean) {
+            return Value.BOOLEAN;
+        } else if(value instanceof Double) {
+            return Value.DOUBLE;
+        } else if(value instanceof Integer) {
+            return Value.INT;
+        } else {
+            return Value.STRING;
+        }
+    }
+}
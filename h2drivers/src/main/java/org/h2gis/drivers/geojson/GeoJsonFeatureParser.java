@@ -0,0 +1,503 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.geojson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the GeoJSON features and geometries. The parser does not hold any
+ * table state, one instance is used by each reading thread.
+ *
+ * @author Nicolas Fortin
+ */
+class GeoJsonFeatureParser {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+    private boolean propertiesFound = false;
+
+    /**
+     * @return A JsonFactory configured for GeoJSON files, the factory is
+     * thread safe.
+     */
+    static JsonFactory createJsonFactory() {
+        JsonFactory jsFactory = new JsonFactory();
+        jsFactory.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+        jsFactory.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+        jsFactory.configure(JsonParser.Feature.ALLOW_NON_NUMERIC_NUMBERS, true);
+        return jsFactory;
+    }
+
+    /**
+     * @return True if the last parsed feature has a properties member
+     */
+    boolean isPropertiesFound() {
+        return propertiesFound;
+    }
+
+    /**
+     * Features in GeoJSON contain a geometry object and additional properties.
+     * The members of the feature may come in any order.
+     *
+     * Syntax:
+     *
+     * { "type": "Feature", "geometry":{"type": "Point", "coordinates": [102.0,
+     * 0.5]}, "properties": {"prop0": "value0"} }
+     *
+     * @param jp Parser on the START_OBJECT token of the feature
+     * @param values Feature values, in the columns order
+     * @param columnNames If not null, the column names are appended
+     * @return True if the feature contains a geometry
+     */
+    boolean parseFeature(JsonParser jp, List<Object> values, List<String> columnNames) throws IOException, SQLException {
+        boolean hasGeometry = false;
+        boolean typeFound = false;
+        propertiesFound = false;
+        jp.nextToken(); // FIELD_NAME type, geometry or properties
+        while (jp.getCurrentToken() != JsonToken.END_OBJECT) {
+            String field = jp.getText();
+            if (field.equalsIgnoreCase("type")) {
+                jp.nextToken(); // VALUE_STRING Feature
+                String type = jp.getText();
+                if (!type.equalsIgnoreCase("feature")) {
+                    throw new SQLException("Malformed GeoJSON file. Expected 'Feature', found '" + type + "'");
+                }
+                typeFound = true;
+            } else if (field.equalsIgnoreCase("geometry")) {
+                jp.nextToken(); //START_OBJECT {
+                values.add(parseGeometry(jp));
+                if (columnNames != null) {
+                    columnNames.add("THE_GEOM");
+                }
+                hasGeometry = true;
+            } else if (field.equalsIgnoreCase("properties")) {
+                parseProperties(jp, values, columnNames);
+                propertiesFound = true;
+            } else {
+                // Other members are ignored
+                jp.nextToken();
+                jp.skipChildren();
+            }
+            jp.nextToken(); // FIELD_NAME or END_OBJECT } feature
+        }
+        if (!typeFound) {
+            throw new SQLException("Malformed GeoJSON file. A feature must have a 'type' member");
+        }
+        return hasGeometry;
+    }
+
+    /**
+     * Parses a GeoJSON geometry and returns its JTS representation.
+     *
+     * Syntax:
+     *
+     * "geometry":{"type": "Point", "coordinates": [102.0,0.5]}
+     *
+     * @param jsParser
+     * @throws IOException
+     * @return Geometry
+     */
+    Geometry parseGeometry(JsonParser jsParser) throws IOException, SQLException {
+        jsParser.nextToken(); // FIELD_NAME type     
+        jsParser.nextToken(); //VALUE_STRING Point
+        String geomType = jsParser.getText();
+        if (geomType.equalsIgnoreCase("point")) {
+            return parsePoint(jsParser);
+        } else if (geomType.equalsIgnoreCase("multipoint")) {
+            return parseMultiPoint(jsParser);
+        } else if (geomType.equalsIgnoreCase("linestring")) {
+            return parseLinestring(jsParser);
+        } else if (geomType.equalsIgnoreCase("multilinestring")) {
+            return parseMultiLinestring(jsParser);
+        } else if (geomType.equalsIgnoreCase("polygon")) {
+            return parsePolygon(jsParser);
+        } else if (geomType.equalsIgnoreCase("multipolygon")) {
+            return parseMultiPolygon(jsParser);
+        } else if (geomType.equalsIgnoreCase("geometrycollection")) {
+            return parseGeometryCollection(jsParser);
+        } else {
+            throw new SQLException("Unsupported geometry : " + geomType);
+        }
+    }
+
+    /**
+     * Parses the properties of a feature
+     *
+     * Syntax:
+     *
+     * "properties": {"prop0": "value0"}
+     *
+     * @param jp
+     * @param values Feature values
+     * @param columnNames If not null, the column names are appended
+     */
+    private void parseProperties(JsonParser jp, List<Object> values, List<String> columnNames) throws IOException {
+        jp.nextToken();//START_OBJECT {
+        while (jp.nextToken() != JsonToken.END_OBJECT) {
+            String fieldName = jp.getText(); //FIELD_NAME columnName
+            JsonToken value = jp.nextToken();
+            if (value == JsonToken.VALUE_STRING) {
+                values.add(jp.getText());
+            } else if (value == JsonToken.VALUE_TRUE || value == JsonToken.VALUE_FALSE) {
+                values.add(jp.getValueAsBoolean());
+            } else if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+                values.add(jp.getValueAsDouble());
+            } else if (value == JsonToken.VALUE_NUMBER_INT) {
+                values.add(jp.getValueAsInt());
+            } else if (value == JsonToken.VALUE_NULL) {
+                values.add(null);
+            } else {
+                //ignore other value
+                jp.skipChildren();
+                continue;
+            }
+            if (columnNames != null) {
+                columnNames.add(fieldName.toUpperCase());
+            }
+        }
+    }
+
+    /**
+     * @param value Value parsed from a feature
+     * @return The SQL type of the column, VARCHAR for null values
+     */
+    static String getSQLType(Object value) {
+        if (value instanceof Geometry) {
+            return "GEOMETRY";
+        } else if (value instanceof Boolean) {
+            return "BOOLEAN";
+        } else if (value instanceof Double) {
+            return "DOUBLE";
+        } else if (value instanceof Integer) {
+            return "INT";
+        } else {
+            return "VARCHAR";
+        }
+    }
+
+    /**
+     * Parses one position
+     *
+     * Syntax:
+     *
+     * { "type": "Point", "coordinates": [100.0, 0.0] }
+     *
+     * @param jsParser
+     * @throws IOException
+     * @return Point
+     */
+    private Point parsePoint(JsonParser jp) throws IOException, SQLException {
+        jp.nextToken(); // FIELD_NAME coordinates        
+        String coordinatesField = jp.getText();
+        if (coordinatesField.equalsIgnoreCase("coordinates")) {
+            jp.nextToken(); // START_ARRAY [ to parse the coordinate
+            Point point = GF.createPoint(parseCoordinate(jp));
+            return point;
+        } else {
+            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
+        }
+    }
+
+    /**
+     * Parses an array of positions
+     *
+     * Syntax:
+     *
+     * { "type": "MultiPoint", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
+     *
+     * @param jsParser
+     * @throws IOException
+     * @return MultiPoint
+     */
+    private MultiPoint parseMultiPoint(JsonParser jp) throws IOException, SQLException {
+        jp.nextToken(); // FIELD_NAME coordinates        
+        String coordinatesField = jp.getText();
+        if (coordinatesField.equalsIgnoreCase("coordinates")) {
+            jp.nextToken(); // START_ARRAY [ coordinates
+            MultiPoint mPoint = GF.createMultiPoint(parseCoordinates(jp));
+            jp.nextToken();//END_OBJECT } geometry
+            return mPoint;
+        } else {
+            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
+        }
+    }
+
+    /**
+     *
+     * Parse the array of positions.
+     *
+     * Syntax:
+     *
+     * { "type": "LineString", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
+     *
+     * @param jsParser
+     */
+    private LineString parseLinestring(JsonParser jp) throws IOException, SQLException {
+        jp.nextToken(); // FIELD_NAME coordinates        
+        String coordinatesField = jp.getText();
+        if (coordinatesField.equalsIgnoreCase("coordinates")) {
+            jp.nextToken(); // START_ARRAY [ coordinates
+            LineString line = GF.createLineString(parseCoordinates(jp));
+            jp.nextToken();//END_OBJECT } geometry
+            return line;
+        } else {
+            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
+        }
+    }
+
+    /**
+     * Parses an array of positions defined as:
+     *
+     * { "type": "MultiLineString", "coordinates": [ [ [100.0, 0.0], [101.0,
+     * 1.0] ], [ [102.0, 2.0], [103.0, 3.0] ] ] }
+     *
+     * @param jsParser
+     * @return MultiLineString
+     */
+    private MultiLineString parseMultiLinestring(JsonParser jp) throws IOException, SQLException {
+        jp.nextToken(); // FIELD_NAME coordinates        
+        String coordinatesField = jp.getText();
+        if (coordinatesField.equalsIgnoreCase("coordinates")) {
+            ArrayList<LineString> lineStrings = new ArrayList<LineString>();
+            jp.nextToken();//START_ARRAY [ coordinates
+            jp.nextToken(); // START_ARRAY [ coordinates line
+            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+                lineStrings.add(GF.createLineString(parseCoordinates(jp)));
+                jp.nextToken();
+            }
+            MultiLineString line = GF.createMultiLineString(lineStrings.toArray(new LineString[lineStrings.size()]));
+            jp.nextToken();//END_OBJECT } geometry
+            return line;
+        } else {
+            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
+        }
+
+    }
+
+    /**
+     * Coordinates of a Polygon are an array of LinearRing coordinate arrays.
+     * The first element in the array represents the exterior ring. Any
+     * subsequent elements represent interior rings (or holes).
+     *
+     * Syntax:
+     *
+     * No holes:
+     *
+     * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
+     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ] ] }
+     *
+     * With holes:
+     *
+     * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
+     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ], [ [100.2, 0.2], [100.8, 0.2],
+     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2] ] ] }
+     *
+     *
+     *
+     * @param jp
+     * @return Polygon
+     */
+    private Polygon parsePolygon(JsonParser jp) throws IOException, SQLException {
+        jp.nextToken(); // FIELD_NAME coordinates        
+        String coordinatesField = jp.getText();
+        if (coordinatesField.equalsIgnoreCase("coordinates")) {
+            jp.nextToken(); // START_ARRAY [ coordinates
+            jp.nextToken(); //Start the RING
+            int linesIndex = 0;
+            LinearRing linearRing = null;
+            ArrayList<LinearRing> holes = new ArrayList<LinearRing>();
+            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+                if (linesIndex == 0) {
+                    linearRing = GF.createLinearRing(parseCoordinates(jp));
+                } else {
+                    holes.add(GF.createLinearRing(parseCoordinates(jp)));
+                }
+                jp.nextToken();//END RING
+                linesIndex++;
+            }
+            if (linesIndex > 1) {
+                jp.nextToken();//END_OBJECT } geometry
+                return GF.createPolygon(linearRing, holes.toArray(new LinearRing[holes.size()]));
+            } else {
+                jp.nextToken();//END_OBJECT } geometry
+                return GF.createPolygon(linearRing, null);
+            }
+        } else {
+            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
+        }
+    }
+
+    /**
+     * Coordinates of a MultiPolygon are an array of Polygon coordinate arrays:
+     *
+     * { "type": "MultiPolygon", "coordinates": [ [[[102.0, 2.0], [103.0, 2.0],
+     * [103.0, 3.0], [102.0, 3.0], [102.0, 2.0]]], [[[100.0, 0.0], [101.0, 0.0],
+     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0]], [[100.2, 0.2], [100.8, 0.2],
+     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2]]] ] }
+     *
+     * @param jp
+     * @throws IOException
+     * @throws SQLException
+     * @return MultiPolygon
+     */
+    private MultiPolygon parseMultiPolygon(JsonParser jp) throws IOException, SQLException {
+        jp.nextToken(); // FIELD_NAME coordinates        
+        String coordinatesField = jp.getText();
+        if (coordinatesField.equalsIgnoreCase("coordinates")) {
+            ArrayList<Polygon> polygons = new ArrayList<Polygon>();
+            jp.nextToken(); // START_ARRAY [ coordinates             
+            jp.nextToken(); //Start the polygon
+            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+                //Parse the polygon
+                jp.nextToken(); //Start the RING
+                int linesIndex = 0;
+                LinearRing linearRing = null;
+                ArrayList<LinearRing> holes = new ArrayList<LinearRing>();
+                while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+                    if (linesIndex == 0) {
+                        linearRing = GF.createLinearRing(parseCoordinates(jp));
+                    } else {
+                        holes.add(GF.createLinearRing(parseCoordinates(jp)));
+                    }
+                    jp.nextToken();//END RING
+                    linesIndex++;
+                }
+                if (linesIndex > 1) {
+                    jp.nextToken();//END_OBJECT
+                    polygons.add(GF.createPolygon(linearRing, holes.toArray(new LinearRing[holes.size()])));
+                } else {
+                    jp.nextToken();//END_OBJECT
+                    polygons.add(GF.createPolygon(linearRing, null));
+                }
+            }
+            jp.nextToken();//END_OBJECT } geometry
+            return GF.createMultiPolygon(polygons.toArray(new Polygon[polygons.size()]));
+
+        } else {
+            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
+        }
+    }
+
+    /**
+     * Each element in the geometries array of a GeometryCollection is one of
+     * the geometry objects described above:
+     *
+     * { "type": "GeometryCollection", "geometries": [ { "type": "Point",
+     * "coordinates": [100.0, 0.0] }, { "type": "LineString", "coordinates": [
+     * [101.0, 0.0], [102.0, 1.0] ] } ]
+     *
+     * @param jp
+     *
+     * @throws IOException
+     * @throws SQLException
+     * @return GeometryCollection
+     */
+    private GeometryCollection parseGeometryCollection(JsonParser jp) throws IOException, SQLException {
+        jp.nextToken(); // FIELD_NAME geometries        
+        String coordinatesField = jp.getText();
+        if (coordinatesField.equalsIgnoreCase("geometries")) {
+            jp.nextToken();//START array
+            jp.nextToken();//START object
+            ArrayList<Geometry> geometries = new ArrayList<Geometry>();
+            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+                geometries.add(parseGeometry(jp));
+                jp.nextToken();
+            }
+            jp.nextToken();//END_OBJECT } geometry
+            return GF.createGeometryCollection(geometries.toArray(new Geometry[geometries.size()]));
+        } else {
+            throw new SQLException("Malformed GeoJSON file. Expected 'geometries', found '" + coordinatesField + "'");
+        }
+
+    }
+
+    /**
+     * Parses a sequence of coordinates array expressed as
+     *
+     * [ [100.0, 0.0], [101.0, 1.0] ]
+     *
+     * @param jp
+     * @throws IOException
+     * @throws SQLException
+     * @return Coordinate[]
+     */
+    private Coordinate[] parseCoordinates(JsonParser jp) throws IOException {
+        jp.nextToken(); // START_ARRAY [ to parse the each positions
+        ArrayList<Coordinate> coords = new ArrayList<Coordinate>();
+        while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+            coords.add(parseCoordinate(jp));
+        }
+        return coords.toArray(new Coordinate[coords.size()]);
+    }
+
+    /**
+     * Parses a GeoJSON coordinate array and returns a JTS coordinate. The first
+     * token corresponds to the first X value. The last token correponds to the
+     * end of the coordinate array "]".
+     *
+     * Parsed syntax:
+     *
+     * 100.0, 0.0]
+     *
+     * @param jp
+     * @throws IOException
+     * @return Coordinate
+     */
+    private Coordinate parseCoordinate(JsonParser jp) throws IOException {
+        jp.nextToken();
+        double x = jp.getDoubleValue();// VALUE_NUMBER_FLOAT
+        jp.nextToken(); // second value
+        double y = jp.getDoubleValue();
+        Coordinate coord;
+        //We look for a z value
+        jp.nextToken();
+        if (jp.getCurrentToken() == JsonToken.END_ARRAY) {
+            coord = new Coordinate(x, y);
+        } else {
+            double z = jp.getDoubleValue();
+            jp.nextToken(); // exit array
+            coord = new Coordinate(x, y, z);
+        }
+        jp.nextToken();
+        return coord;
+    }
+}
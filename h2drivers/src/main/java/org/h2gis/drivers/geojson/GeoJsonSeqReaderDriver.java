@@ -0,0 +1,446 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.geojson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.h2gis.drivers.utility.FileUtil;
+import org.h2gis.drivers.utility.ParallelFileDriverReader;
+import org.h2gis.h2spatialapi.ProgressVisitor;
+
+/**
+ * Driver to import a GeoJSON text sequence file into a spatial table. The file
+ * contains one Feature object by line (newline delimited JSON), the lines may
+ * start with the record separator character of RFC 8142.
+ *
+ * The file is split at line boundaries into chunks, the chunks are parsed by
+ * several threads and the features are inserted in the file order.
+ * The table schema is defined by the first feature, as in
+ * {@link GeoJsonReaderDriver}.
+ *
+ * @author Nicolas Fortin
+ */
+public class GeoJsonSeqReaderDriver {
+    /** Default number of bytes parsed at once by a thread */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    /** Number of parsed chunks waiting for insertion, by thread */
+    private static final int QUEUE_CHUNKS = 2;
+    private final String tableName;
+    private final File fileName;
+    private final Connection connection;
+    private final JsonFactory jsFactory = GeoJsonFeatureParser.createJsonFactory();
+    private PreparedStatement preparedStatement = null;
+    private boolean hasProperties = false;
+    private int featureCounter = 1;
+    private int batchCount = 0;
+    private int batchSize = GeoJsonReaderDriver.DEFAULT_BATCH_SIZE;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int threadCount = ParallelFileDriverReader.getDefaultThreadCount();
+
+    /**
+     * Driver to import a GeoJSON text sequence file into a spatial table.
+     *
+     * @param connection
+     * @param tableName
+     * @param fileName
+     */
+    public GeoJsonSeqReaderDriver(Connection connection, String tableName, File fileName) {
+        this.connection = connection;
+        this.tableName = tableName;
+        this.fileName = fileName;
+    }
+
+    /**
+     * @param batchSize Number of features sent to the database at once
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return Number of features sent to the database at once
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param chunkSize Number of bytes parsed at once by a thread, a chunk
+     * always contains complete lines
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @return Number of bytes parsed at once by a thread
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param threadCount Number of parsing threads
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @return Number of parsing threads
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Read the GeoJSON text sequence file. Rows are inserted by batches in a
+     * single transaction, unless the caller manages the transaction.
+     *
+     * @param progress
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void read(ProgressVisitor progress) throws SQLException, IOException {
+        final boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        boolean committed = false;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            parseData(executor, progress);
+            if (autoCommit) {
+                connection.commit();
+                committed = true;
+            }
+        } finally {
+            executor.shutdownNow();
+            if (preparedStatement != null) {
+                preparedStatement.close();
+                preparedStatement = null;
+            }
+            if (autoCommit) {
+                if (!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Read the file by chunks of complete lines. The first feature is parsed
+     * by this thread in order to create the table, the other lines are parsed
+     * by the executor.
+     *
+     * @param executor
+     * @param progress
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void parseData(ExecutorService executor, ProgressVisitor progress) throws IOException, SQLException {
+        // The uncompressed length of a gz file is unknown, the progression is then only completed at the end
+        final long fileLength = FileUtil.isGzip(fileName) ? Long.MAX_VALUE : Math.max(1, fileName.length());
+        ProgressVisitor readProgress = progress.subProcess(100);
+        int progressStep = 0;
+        ArrayDeque<PendingChunk> pendingChunks = new ArrayDeque<PendingChunk>();
+        InputStream fis = FileUtil.openInputStream(fileName);
+        try {
+            byte[] buffer = new byte[chunkSize];
+            // Number of bytes of the buffer not yet submitted
+            int length = 0;
+            long position = 0;
+            boolean endOfFile = false;
+            while (!endOfFile || length > 0) {
+                int read = endOfFile ? -1 : fis.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    endOfFile = true;
+                } else {
+                    length += read;
+                    if (length < buffer.length) {
+                        continue;
+                    }
+                }
+                // Cut the chunk after the last complete line
+                int chunkEnd = length;
+                if (!endOfFile) {
+                    chunkEnd = lastIndexOf(buffer, length, (byte) '\n') + 1;
+                    if (chunkEnd == 0) {
+                        // The line is longer than the buffer
+                        byte[] largerBuffer = new byte[buffer.length * 2];
+                        System.arraycopy(buffer, 0, largerBuffer, 0, length);
+                        buffer = largerBuffer;
+                        continue;
+                    }
+                }
+                byte[] chunk = new byte[chunkEnd];
+                System.arraycopy(buffer, 0, chunk, 0, chunkEnd);
+                System.arraycopy(buffer, chunkEnd, buffer, 0, length - chunkEnd);
+                length -= chunkEnd;
+                position += chunkEnd;
+                int start = 0;
+                if (preparedStatement == null) {
+                    start = parseFirstFeature(chunk);
+                }
+                pendingChunks.add(new PendingChunk(executor.submit(new ChunkParser(chunk, start)), position));
+                // Insert the parsed chunks in the file order
+                while (!pendingChunks.isEmpty() && (pendingChunks.size() >= threadCount * QUEUE_CHUNKS
+                        || pendingChunks.peek().rows.isDone())) {
+                    PendingChunk pendingChunk = pendingChunks.poll();
+                    insertRows(pendingChunk.getRows());
+                    int newStep = (int) (pendingChunk.position * 100 / fileLength);
+                    while (progressStep < newStep && progressStep < 100) {
+                        readProgress.endStep();
+                        progressStep++;
+                    }
+                }
+            }
+            while (!pendingChunks.isEmpty()) {
+                insertRows(pendingChunks.poll().getRows());
+            }
+        } finally {
+            fis.close();
+        }
+        if (preparedStatement == null) {
+            throw new SQLException("The first feature must contains a geomtry field.");
+        }
+        if (batchCount > 0) {
+            preparedStatement.executeBatch();
+        }
+        readProgress.endOfProgress();
+    }
+
+    /**
+     * Parse the first feature of the file and create the table.
+     *
+     * @param chunk First chunk of the file
+     * @return Position of the line that follows the first feature
+     * @throws IOException
+     * @throws SQLException
+     */
+    private int parseFirstFeature(byte[] chunk) throws IOException, SQLException {
+        int lineStart = 0;
+        while (lineStart < chunk.length) {
+            int lineEnd = indexOf(chunk, lineStart, (byte) '\n');
+            JsonParser jp = createLineParser(jsFactory, chunk, lineStart, lineEnd);
+            if (jp != null) {
+                try {
+                    GeoJsonFeatureParser featureParser = new GeoJsonFeatureParser();
+                    List<Object> values = new ArrayList<Object>();
+                    List<String> columnNames = new ArrayList<String>();
+                    if (!parseFeature(jp, featureParser, values, columnNames)) {
+                        throw new SQLException("The first feature must contains a geomtry field.");
+                    }
+                    hasProperties = featureParser.isPropertiesFound();
+                    if (!hasProperties) {
+                        values.add(featureCounter);
+                    }
+                    preparedStatement = GeoJsonReaderDriver.createTable(connection, tableName, columnNames, values,
+                            hasProperties);
+                    insertRow(values.toArray());
+                } finally {
+                    jp.close();
+                }
+                return lineEnd;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return chunk.length;
+    }
+
+    /**
+     * Add the parsed features to the insert batch.
+     *
+     * @param rows Feature values
+     * @throws SQLException
+     */
+    private void insertRows(List<Object[]> rows) throws SQLException {
+        for (Object[] row : rows) {
+            if (!hasProperties) {
+                row[row.length - 1] = featureCounter;
+            }
+            insertRow(row);
+        }
+    }
+
+    private void insertRow(Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            preparedStatement.setObject(i + 1, row[i]);
+        }
+        preparedStatement.addBatch();
+        batchCount++;
+        featureCounter++;
+        if (batchCount >= batchSize) {
+            preparedStatement.executeBatch();
+            preparedStatement.clearBatch();
+            batchCount = 0;
+        }
+    }
+
+    /**
+     * Parses a feature object.
+     *
+     * @param jp Parser on the first token of the line
+     * @param featureParser
+     * @param values Feature values, in the columns order
+     * @param columnNames If not null, the column names are appended
+     * @return True if the feature contains a geometry
+     */
+    private static boolean parseFeature(JsonParser jp, GeoJsonFeatureParser featureParser, List<Object> values,
+            List<String> columnNames) throws IOException, SQLException {
+        return featureParser.parseFeature(jp, values, columnNames);
+    }
+
+    /**
+     * @param jsFactory
+     * @param data
+     * @param lineStart First byte of the line
+     * @param lineEnd Position of the end of line
+     * @return A parser on the START_OBJECT token of the line, null if the line
+     * is empty
+     * @throws IOException
+     */
+    private static JsonParser createLineParser(JsonFactory jsFactory, byte[] data, int lineStart, int lineEnd) throws IOException {
+        // Skip the whitespaces, including the record separator control character
+        while (lineStart < lineEnd && data[lineStart] >= 0 && data[lineStart] <= ' ') {
+            lineStart++;
+        }
+        if (lineStart == lineEnd) {
+            return null;
+        }
+        JsonParser jp = jsFactory.createParser(data, lineStart, lineEnd - lineStart);
+        if (jp.nextToken() != JsonToken.START_OBJECT) {
+            jp.close();
+            throw new IOException("Malformed GeoJSON text sequence, a line must contain a Feature object");
+        }
+        return jp;
+    }
+
+    private static int indexOf(byte[] data, int from, byte value) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return data.length;
+    }
+
+    private static int lastIndexOf(byte[] data, int length, byte value) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parsed rows of a chunk and the file position at the end of the chunk.
+     */
+    private static class PendingChunk {
+        private final Future<List<Object[]>> rows;
+        private final long position;
+
+        private PendingChunk(Future<List<Object[]>> rows, long position) {
+            this.rows = rows;
+            this.position = position;
+        }
+
+        private List<Object[]> getRows() throws IOException, SQLException {
+            try {
+                return rows.get();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException("Interrupted while waiting for features");
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                } else {
+                    throw new IOException("Error while parsing the file", cause);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the features of a chunk of lines. If the features do not have
+     * properties, the last value is set by the consumer.
+     */
+    private class ChunkParser implements Callable<List<Object[]>> {
+        private final byte[] data;
+        private final int start;
+
+        private ChunkParser(byte[] data, int start) {
+            this.data = data;
+            this.start = start;
+        }
+
+        @Override
+        public List<Object[]> call() throws IOException, SQLException {
+            GeoJsonFeatureParser featureParser = new GeoJsonFeatureParser();
+            List<Object[]> rows = new ArrayList<Object[]>();
+            List<Object> values = new ArrayList<Object>();
+            int lineStart = start;
+            while (lineStart < data.length) {
+                int lineEnd = indexOf(data, lineStart, (byte) '\n');
+                JsonParser jp = createLineParser(jsFactory, data, lineStart, lineEnd);
+                if (jp != null) {
+                    try {
+                        values.clear();
+                        parseFeature(jp, featureParser, values, null);
+                        if (!hasProperties) {
+                            values.add(null);
+                        }
+                        rows.add(values.toArray());
+                    } finally {
+                        jp.close();
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+            return rows;
+        }
+    }
+}
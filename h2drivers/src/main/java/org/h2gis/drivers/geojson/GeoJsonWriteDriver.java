@@ -27,7 +27,8 @@ package org.h2gis.drivers.geojson;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.vividsolutions.jts.geom.Coordinate;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryCollection;
 import com.vividsolutions.jts.geom.LineString;
@@ -36,20 +37,28 @@ import com.vividsolutions.jts.geom.MultiPoint;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.h2gis.drivers.utility.FileUtil;
 import org.h2gis.h2spatialapi.ProgressVisitor;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.SFSUtilities;
@@ -72,12 +81,26 @@ import org.h2gis.utilities.TableLocation;
  * @author Erwan Bocher
  */
 public class GeoJsonWriteDriver {
+    /** Rounded ordinates must stay exact in a long and in a double */
+    private static final double MAX_ROUNDED_VALUE = 1e15;
+    /** Default number of rows serialized at once by a thread */
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+    /** Number of serialized chunks waiting for the output stream, by thread */
+    private static final int QUEUE_CHUNKS = 2;
+    /** Written before each feature of a geojsons file, RFC 8142 */
+    private static final char RECORD_SEPARATOR = '\u001E';
 
     private final String tableName;
     private final File fileName;
     private final Connection connection;
-    private Map<String, Integer> cachedColumnNames;
-    private int columnCountProperties = -1;
+    private SerializedString[] propertyNames = new SerializedString[0];
+    private int[] propertyColumns = new int[0];
+    private PropertyWriter[] propertyWriters = new PropertyWriter[0];
+    private int maxDecimals = -1;
+    private double decimalsScale = 1;
+    private int threadCount = 1;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean recordSeparator = false;
 
     /**
      * A simple GeoJSON driver to write a spatial table to a GeoJSON file.
@@ -93,20 +116,69 @@ public class GeoJsonWriteDriver {
     }
 
     /**
-     * Write the spatial table to GeoJSON format.
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 to
+     * write the coordinates with the full double precision
+     */
+    public void setMaxDecimals(int maxDecimals) {
+        this.maxDecimals = maxDecimals;
+        this.decimalsScale = maxDecimals < 0 ? 1 : Math.pow(10, maxDecimals);
+    }
+
+    /**
+     * @return Maximum number of decimals of the coordinates, -1 for the full
+     * double precision
+     */
+    public int getMaxDecimals() {
+        return maxDecimals;
+    }
+
+    /**
+     * @param threadCount Number of serialization threads. If greater than 1,
+     * the table is split into _ROWID_ ranges, the exported table must not be a
+     * view.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @return Number of serialization threads
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param chunkSize Number of rows serialized at once by a thread
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @return Number of rows serialized at once by a thread
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Write the spatial table to GeoJSON format. The file is compressed
+     * while it is written if the file name ends with the gz extension.
+     * A geojsons file is a GeoJSON text sequence of RFC 8142, each feature
+     * starts with the record separator character. A geojsonl file contains
+     * newline delimited features, without record separator.
      *
      * @param progress
      * @throws SQLException
      */
     public void write(ProgressVisitor progress) throws SQLException, IOException {
-        String path = fileName.getAbsolutePath();
-        String extension = "";
-        int i = path.lastIndexOf('.');
-        if (i >= 0) {
-            extension = path.substring(i + 1);
-        }
+        String extension = FileUtil.getExtension(fileName);
+        recordSeparator = extension.equalsIgnoreCase("geojsons");
         if (extension.equalsIgnoreCase("geojson")) {
-            writeGeoJson(progress);
+            writeGeoJson(progress, false);
+        } else if (GeoJsonDriverFunction.isSequenceFormat(extension)) {
+            writeGeoJson(progress, true);
         } else {
             throw new SQLException("Please geojson extension.");
         }
@@ -116,64 +188,200 @@ public class GeoJsonWriteDriver {
      * Write the spatial table to GeoJSON format.
      *
      * @param progress
+     * @param sequence If true, write a GeoJSON text sequence: one feature by
+     * line without the FeatureCollection object
      * @throws SQLException
      */
-    private void writeGeoJson(ProgressVisitor progress) throws SQLException, IOException {
-        FileOutputStream fos = null;
+    private void writeGeoJson(ProgressVisitor progress, boolean sequence) throws SQLException, IOException {
+        OutputStream out = null;
         try {
-            fos = new FileOutputStream(fileName);
+            out = FileUtil.openOutputStream(fileName);
             // Read Geometry Index and type
             List<String> spatialFieldNames = SFSUtilities.getGeometryFields(connection, TableLocation.parse(tableName));
             if (spatialFieldNames.isEmpty()) {
                 throw new SQLException(String.format("The table %s does not contain a geometry field", tableName));
             }
 
-            // Read table content
-            Statement st = connection.createStatement();
-            try {
-                ResultSet rs = st.executeQuery(String.format("select * from `%s`", tableName));
-
-                JsonFactory jsonFactory = new JsonFactory();
-                JsonGenerator jsonGenerator = jsonFactory.createGenerator(new BufferedOutputStream(fos), JsonEncoding.UTF8);
+            JsonFactory jsonFactory = new JsonFactory();
+            // Features of a sequence are separated by a new line
+            jsonFactory.setRootValueSeparator(null);
+            JsonGenerator jsonGenerator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
 
-                // header of the GeoJSON file
+            // header of the GeoJSON file
+            if (!sequence) {
                 jsonGenerator.writeStartObject();
                 jsonGenerator.writeStringField("type", "FeatureCollection");
                 jsonGenerator.writeArrayFieldStart("features");
+            }
+            if (threadCount > 1) {
+                // Chunks are written directly in the output stream
+                jsonGenerator.flush();
+                writeFeatureChunks(out, spatialFieldNames.get(0), sequence);
+            } else {
+                writeFeatures(jsonGenerator, spatialFieldNames.get(0), sequence);
+            }
+            progress.endStep();
+            // footer
+            if (!sequence) {
+                jsonGenerator.writeEndArray();
+                jsonGenerator.writeEndObject();
+            }
+            jsonGenerator.flush();
+            jsonGenerator.close();
+        } catch (FileNotFoundException ex) {
+            throw new SQLException(ex);
 
-                try {
-                    ResultSetMetaData resultSetMetaData = rs.getMetaData();
-                    int geoFieldIndex = JDBCUtilities.getFieldIndex(resultSetMetaData, spatialFieldNames.get(0));
+        } finally {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } catch (IOException ex) {
+                throw new SQLException(ex);
+            }
+        }
+    }
 
-                    cacheMetadata(resultSetMetaData);
-                    while (rs.next()) {
-                        writeFeature(jsonGenerator, rs, geoFieldIndex);
+    /**
+     * Write all the features of the table with the calling thread.
+     *
+     * @param jsonGenerator
+     * @param geometryField Name of the geometry field
+     * @param sequence True to write one feature by line
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void writeFeatures(JsonGenerator jsonGenerator, String geometryField, boolean sequence) throws SQLException, IOException {
+        // Read table content
+        Statement st = connection.createStatement();
+        try {
+            ResultSet rs = st.executeQuery(String.format("select * from `%s`", tableName));
+            try {
+                ResultSetMetaData resultSetMetaData = rs.getMetaData();
+                int geoFieldIndex = JDBCUtilities.getFieldIndex(resultSetMetaData, geometryField);
+
+                cacheMetadata(resultSetMetaData);
+                while (rs.next()) {
+                    if (recordSeparator) {
+                        jsonGenerator.writeRaw(RECORD_SEPARATOR);
                     }
-                    progress.endStep();
-                    // footer
-                    jsonGenerator.writeEndArray();
-                    jsonGenerator.writeEndObject();
-                    jsonGenerator.flush();
-                    jsonGenerator.close();
+                    writeFeature(jsonGenerator, rs, geoFieldIndex);
+                    if (sequence) {
+                        jsonGenerator.writeRaw('\n');
+                    }
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+    }
 
+    /**
+     * Split the table into _ROWID_ ranges of chunkSize rows. The features of
+     * each range are serialized into a buffer by the worker threads, the
+     * buffers are written in the table order.
+     *
+     * @param out Output stream, positioned in the features array
+     * @param geometryField Name of the geometry field
+     * @param sequence True to write one feature by line
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void writeFeatureChunks(OutputStream out, String geometryField, boolean sequence) throws SQLException, IOException {
+        JsonFactory chunkFactory = new JsonFactory();
+        // Features of a collection are separated by a comma, inside a chunk
+        chunkFactory.setRootValueSeparator(sequence ? null : ",");
+        Statement st = connection.createStatement();
+        try {
+            int geoFieldIndex;
+            ResultSet rs = st.executeQuery(String.format("select * from `%s` limit 0", tableName));
+            try {
+                ResultSetMetaData resultSetMetaData = rs.getMetaData();
+                geoFieldIndex = JDBCUtilities.getFieldIndex(resultSetMetaData, geometryField);
+                cacheMetadata(resultSetMetaData);
+            } finally {
+                rs.close();
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                ArrayDeque<Future<byte[]>> pendingChunks = new ArrayDeque<Future<byte[]>>();
+                boolean hasFeatures = false;
+                // The range bounds are taken from the ordered keys, the _ROWID_ of a table with an integer primary
+                // key is the key value and it may have large gaps
+                rs = st.executeQuery(String.format("select _ROWID_ from `%s` order by _ROWID_", tableName));
+                try {
+                    long firstRowId = 0;
+                    long lastRowId = 0;
+                    int rowCount = 0;
+                    while (rs.next()) {
+                        lastRowId = rs.getLong(1);
+                        if (rowCount == 0) {
+                            firstRowId = lastRowId;
+                        }
+                        rowCount++;
+                        if (rowCount == chunkSize) {
+                            pendingChunks.add(executor.submit(new ChunkWriter(chunkFactory, firstRowId, lastRowId,
+                                    geoFieldIndex, sequence)));
+                            rowCount = 0;
+                            if (pendingChunks.size() >= threadCount * QUEUE_CHUNKS) {
+                                hasFeatures |= writeChunk(out, pendingChunks.poll(), hasFeatures && !sequence);
+                            }
+                        }
+                    }
+                    if (rowCount > 0) {
+                        pendingChunks.add(executor.submit(new ChunkWriter(chunkFactory, firstRowId, lastRowId,
+                                geoFieldIndex, sequence)));
+                    }
                 } finally {
                     rs.close();
                 }
+                while (!pendingChunks.isEmpty()) {
+                    hasFeatures |= writeChunk(out, pendingChunks.poll(), hasFeatures && !sequence);
+                }
             } finally {
-                st.close();
+                executor.shutdownNow();
             }
-        } catch (FileNotFoundException ex) {
-            throw new SQLException(ex);
-
         } finally {
-            try {
-                if (fos != null) {
-                    fos.close();
-                }
-            } catch (IOException ex) {
-                throw new SQLException(ex);
+            st.close();
+        }
+    }
+
+    /**
+     * Wait for a serialized chunk and copy it to the output stream.
+     *
+     * @param out Output stream
+     * @param chunk Serialized features
+     * @param separator True to write a comma before the chunk features
+     * @return True if the chunk contains at least one feature
+     * @throws SQLException
+     * @throws IOException
+     */
+    private static boolean writeChunk(OutputStream out, Future<byte[]> chunk, boolean separator) throws SQLException, IOException {
+        byte[] bytes;
+        try {
+            bytes = chunk.get();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("Interrupted while waiting for features");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else {
+                throw new IOException("Error while writing the features", cause);
             }
         }
+        if (bytes.length == 0) {
+            return false;
+        }
+        if (separator) {
+            out.write(',');
+        }
+        out.write(bytes);
+        return true;
     }
 
     /**
@@ -217,15 +425,25 @@ public class GeoJsonWriteDriver {
      * @throws SQLException
      */
     private void cacheMetadata(ResultSetMetaData resultSetMetaData) throws SQLException {
-        cachedColumnNames = new HashMap<String, Integer>();
+        List<SerializedString> names = new ArrayList<SerializedString>();
+        List<Integer> columns = new ArrayList<Integer>();
+        List<PropertyWriter> writers = new ArrayList<PropertyWriter>();
         for (int i = 1; i <= resultSetMetaData.getColumnCount(); i++) {
             final String fieldTypeName = resultSetMetaData.getColumnTypeName(i);
+            final int fieldType = resultSetMetaData.getColumnType(i);
             if (!fieldTypeName.equalsIgnoreCase("geometry")
-                    && isSupportedPropertyType(resultSetMetaData.getColumnType(i), fieldTypeName)) {
-                cachedColumnNames.put(resultSetMetaData.getColumnName(i).toUpperCase(), i);
-                columnCountProperties++;
+                    && isSupportedPropertyType(fieldType, fieldTypeName)) {
+                names.add(new SerializedString(resultSetMetaData.getColumnName(i).toUpperCase()));
+                columns.add(i);
+                writers.add(PropertyWriter.fromSQLType(fieldType));
             }
         }
+        propertyNames = names.toArray(new SerializedString[names.size()]);
+        propertyColumns = new int[columns.size()];
+        for (int i = 0; i < propertyColumns.length; i++) {
+            propertyColumns[i] = columns.get(i);
+        }
+        propertyWriters = writers.toArray(new PropertyWriter[writers.size()]);
     }
 
     /**
@@ -274,7 +492,13 @@ public class GeoJsonWriteDriver {
     private void write(Point point, JsonGenerator gen) throws IOException {
         gen.writeStringField("type", "Point");
         gen.writeFieldName("coordinates");
-        writeCoordinate(point.getCoordinate(), gen);
+        CoordinateSequence coordinates = point.getCoordinateSequence();
+        if (coordinates.size() > 0) {
+            writeCoordinate(coordinates, 0, gen);
+        } else {
+            gen.writeStartArray();
+            gen.writeEndArray();
+        }
     }
 
     /**
@@ -290,7 +514,14 @@ public class GeoJsonWriteDriver {
     private void write(MultiPoint points, JsonGenerator gen) throws IOException {
         gen.writeStringField("type", "MultiPoint");
         gen.writeFieldName("coordinates");
-        writeCoordinates(points.getCoordinates(), gen);
+        gen.writeStartArray();
+        for (int i = 0; i < points.getNumGeometries(); ++i) {
+            CoordinateSequence coordinates = ((Point) points.getGeometryN(i)).getCoordinateSequence();
+            if (coordinates.size() > 0) {
+                writeCoordinate(coordinates, 0, gen);
+            }
+        }
+        gen.writeEndArray();
     }
 
     /**
@@ -305,7 +536,7 @@ public class GeoJsonWriteDriver {
     private void write(LineString geom, JsonGenerator gen) throws IOException {
         gen.writeStringField("type", "LineString");
         gen.writeFieldName("coordinates");
-        writeCoordinates(geom.getCoordinates(), gen);
+        writeCoordinates(geom.getCoordinateSequence(), gen);
     }
 
     /**
@@ -324,7 +555,7 @@ public class GeoJsonWriteDriver {
         gen.writeFieldName("coordinates");
         gen.writeStartArray();
         for (int i = 0; i < geom.getNumGeometries(); ++i) {
-            writeCoordinates(geom.getGeometryN(i).getCoordinates(), gen);
+            writeCoordinates(((LineString) geom.getGeometryN(i)).getCoordinateSequence(), gen);
         }
         gen.writeEndArray();
     }
@@ -393,9 +624,9 @@ public class GeoJsonWriteDriver {
         gen.writeStringField("type", "Polygon");
         gen.writeFieldName("coordinates");
         gen.writeStartArray();
-        writeCoordinates(geom.getExteriorRing().getCoordinates(), gen);
+        writeCoordinates(geom.getExteriorRing().getCoordinateSequence(), gen);
         for (int i = 0; i < geom.getNumInteriorRing(); ++i) {
-            writeCoordinates(geom.getInteriorRingN(i).getCoordinates(), gen);
+            writeCoordinates(geom.getInteriorRingN(i).getCoordinateSequence(), gen);
         }
         gen.writeEndArray();
     }
@@ -421,9 +652,9 @@ public class GeoJsonWriteDriver {
         for (int i = 0; i < geom.getNumGeometries(); ++i) {
             Polygon p = (Polygon) geom.getGeometryN(i);
             gen.writeStartArray();
-            writeCoordinates(p.getExteriorRing().getCoordinates(), gen);
+            writeCoordinates(p.getExteriorRing().getCoordinateSequence(), gen);
             for (int j = 0; j < p.getNumInteriorRing(); ++j) {
-                writeCoordinates(p.getInteriorRingN(j).getCoordinates(), gen);
+                writeCoordinates(p.getInteriorRingN(j).getCoordinateSequence(), gen);
             }
             gen.writeEndArray();
         }
@@ -433,20 +664,48 @@ public class GeoJsonWriteDriver {
     /**
      * Write coordinate positions.
      *
-     * @param coordinate
+     * @param coordinates
+     * @param index Coordinate index
      * @param gen
      * @throws IOException
      */
-    private void writeCoordinate(Coordinate coordinate, JsonGenerator gen) throws IOException {
+    private void writeCoordinate(CoordinateSequence coordinates, int index, JsonGenerator gen) throws IOException {
         gen.writeStartArray();
-        gen.writeNumber(coordinate.x);
-        gen.writeNumber(coordinate.y);
-        if (!Double.isNaN(coordinate.z)) {
-            gen.writeNumber(coordinate.z);
+        writeOrdinate(coordinates.getX(index), gen);
+        writeOrdinate(coordinates.getY(index), gen);
+        if (coordinates.getDimension() > 2) {
+            double z = coordinates.getOrdinate(index, CoordinateSequence.Z);
+            if (!Double.isNaN(z)) {
+                writeOrdinate(z, gen);
+            }
         }
         gen.writeEndArray();
     }
 
+    /**
+     * Write an ordinate, rounded to the maximum number of decimals. Integral
+     * rounded values are written without decimal part.
+     *
+     * @param value
+     * @param gen
+     * @throws IOException
+     */
+    private void writeOrdinate(double value, JsonGenerator gen) throws IOException {
+        if (maxDecimals >= 0) {
+            double scaled = value * decimalsScale;
+            if (Math.abs(scaled) < MAX_ROUNDED_VALUE) {
+                long rounded = Math.round(scaled);
+                if (maxDecimals == 0 || rounded % (long) decimalsScale == 0) {
+                    gen.writeNumber(rounded / (long) decimalsScale);
+                } else {
+                    gen.writeNumber(rounded / decimalsScale);
+                }
+                return;
+            }
+        }
+        gen.writeNumber(value);
+    }
+
     /**
      * Write coordinate array.
      *
@@ -454,10 +713,10 @@ public class GeoJsonWriteDriver {
      * @param gen
      * @throws IOException
      */
-    private void writeCoordinates(Coordinate[] coordinates, JsonGenerator gen) throws IOException {
+    private void writeCoordinates(CoordinateSequence coordinates, JsonGenerator gen) throws IOException {
         gen.writeStartArray();
-        for (Coordinate coord : coordinates) {
-            writeCoordinate(coord, gen);
+        for (int i = 0; i < coordinates.size(); i++) {
+            writeCoordinate(coordinates, i, gen);
         }
         gen.writeEndArray();
     }
@@ -470,12 +729,11 @@ public class GeoJsonWriteDriver {
      * @throws IOException
      */
     private void writeProperties(JsonGenerator jsonGenerator, ResultSet rs) throws IOException, SQLException {
-        if (columnCountProperties != -1) {
+        if (propertyNames.length > 0) {
             jsonGenerator.writeObjectFieldStart("properties");
-            for (Map.Entry<String, Integer> entry : cachedColumnNames.entrySet()) {
-                String string = entry.getKey();
-                Integer fieldId = entry.getValue();
-                jsonGenerator.writeObjectField(string, rs.getObject(fieldId));
+            for (int i = 0; i < propertyNames.length; i++) {
+                jsonGenerator.writeFieldName(propertyNames[i]);
+                propertyWriters[i].write(jsonGenerator, rs, propertyColumns[i]);
             }
             jsonGenerator.writeEndObject();
         }
@@ -506,4 +764,147 @@ public class GeoJsonWriteDriver {
                 throw new SQLException("Field type not supported by GeoJSON driver: " + sqlTypeName);
         }
     }
+
+    /**
+     * Serialize the features of a _ROWID_ range into a buffer.
+     */
+    private class ChunkWriter implements Callable<byte[]> {
+        private final JsonFactory chunkFactory;
+        private final long firstRowId;
+        private final long lastRowId;
+        private final int geoFieldIndex;
+        private final boolean sequence;
+
+        private ChunkWriter(JsonFactory chunkFactory, long firstRowId, long lastRowId, int geoFieldIndex, boolean sequence) {
+            this.chunkFactory = chunkFactory;
+            this.firstRowId = firstRowId;
+            this.lastRowId = lastRowId;
+            this.geoFieldIndex = geoFieldIndex;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public byte[] call() throws SQLException, IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PreparedStatement st = connection.prepareStatement(
+                    String.format("select * from `%s` where _ROWID_ between ? and ?", tableName));
+            try {
+                st.setLong(1, firstRowId);
+                st.setLong(2, lastRowId);
+                ResultSet rs = st.executeQuery();
+                try {
+                    JsonGenerator jsonGenerator = chunkFactory.createGenerator(bytes, JsonEncoding.UTF8);
+                    while (rs.next()) {
+                        if (recordSeparator) {
+                            jsonGenerator.writeRaw(RECORD_SEPARATOR);
+                        }
+                        writeFeature(jsonGenerator, rs, geoFieldIndex);
+                        if (sequence) {
+                            jsonGenerator.writeRaw('\n');
+                        }
+                    }
+                    jsonGenerator.close();
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                st.close();
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Write the value of a property column, the writer is chosen from the SQL
+     * type of the column.
+     */
+    private enum PropertyWriter {
+        BOOLEAN {
+            @Override
+            void write(JsonGenerator gen, ResultSet rs, int column) throws IOException, SQLException {
+                boolean value = rs.getBoolean(column);
+                if (rs.wasNull()) {
+                    gen.writeNull();
+                } else {
+                    gen.writeBoolean(value);
+                }
+            }
+        },
+        INTEGER {
+            @Override
+            void write(JsonGenerator gen, ResultSet rs, int column) throws IOException, SQLException {
+                int value = rs.getInt(column);
+                if (rs.wasNull()) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(value);
+                }
+            }
+        },
+        BIGINT {
+            @Override
+            void write(JsonGenerator gen, ResultSet rs, int column) throws IOException, SQLException {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(value);
+                }
+            }
+        },
+        DOUBLE {
+            @Override
+            void write(JsonGenerator gen, ResultSet rs, int column) throws IOException, SQLException {
+                double value = rs.getDouble(column);
+                if (rs.wasNull()) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(value);
+                }
+            }
+        },
+        STRING {
+            @Override
+            void write(JsonGenerator gen, ResultSet rs, int column) throws IOException, SQLException {
+                String value = rs.getString(column);
+                if (value == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeString(value);
+                }
+            }
+        };
+
+        /**
+         * Write the column value of the current row.
+         *
+         * @param gen
+         * @param rs
+         * @param column Column index
+         * @throws IOException
+         * @throws SQLException
+         */
+        abstract void write(JsonGenerator gen, ResultSet rs, int column) throws IOException, SQLException;
+
+        /**
+         * @param sqlTypeId Supported SQL type
+         * @return The property writer of this type
+         */
+        static PropertyWriter fromSQLType(int sqlTypeId) {
+            switch (sqlTypeId) {
+                case Types.BOOLEAN:
+                    return BOOLEAN;
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                    return INTEGER;
+                case Types.BIGINT:
+                    return BIGINT;
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                    return DOUBLE;
+                default:
+                    return STRING;
+            }
+        }
+    }
 }
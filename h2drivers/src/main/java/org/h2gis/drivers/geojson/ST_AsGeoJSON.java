@@ -25,6 +25,7 @@
 package org.h2gis.drivers.geojson;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryCollection;
@@ -42,11 +43,27 @@ import org.h2gis.h2spatialapi.DeterministicScalarFunction;
  * @author Erwan Bocher
  */
 public class ST_AsGeoJSON extends DeterministicScalarFunction {
+    /** Buffers larger than this capacity are not kept by the threads */
+    private static final int MAX_CACHED_CAPACITY = 1 << 20;
+    private static final long[] POWERS_OF_TEN = new long[16];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder();
+        }
+    };
 
     public ST_AsGeoJSON() {
         addProperty(PROP_REMARKS, "Return the geometry as a Geometry Javascript Object Notation (GeoJSON 1.0) element.\n"
                 + "2D and 3D Geometries are both supported.\n"
-                + "GeoJSON only supports SFS 1.1 geometry types (POINT, LINESTRING, POLYGON and COLLECTION).");
+                + "GeoJSON only supports SFS 1.1 geometry types (POINT, LINESTRING, POLYGON and COLLECTION).\n"
+                + "The optional second argument is the maximum number of decimals of the coordinates.");
     }
 
     @Override
@@ -61,12 +78,32 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @return
      */
     public static String toGeojson(Geometry geom) {
-        StringBuilder sb = new StringBuilder();
-        toGeojsonGeometry(geom, sb);
-        return sb.toString();
+        return toGeojson(geom, -1);
     }
-    
-    
+
+    /**
+     * Convert the geometry to a GeoJSON representation.
+     *
+     * @param geom
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @return
+     */
+    public static String toGeojson(Geometry geom, int maxDecimals) {
+        if (geom == null) {
+            return null;
+        }
+        // The buffer of the thread is reused from a row to another
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        toGeojsonGeometry(geom, sb, maxDecimals);
+        String geojson = sb.toString();
+        if (sb.capacity() > MAX_CACHED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return geojson;
+    }
+
     /**
      * Transform a JTS geometry to a GeoJSON representation.
      *
@@ -74,20 +111,32 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonGeometry(Geometry geom, StringBuilder sb) {
+        toGeojsonGeometry(geom, sb, -1);
+    }
+
+    /**
+     * Transform a JTS geometry to a GeoJSON representation.
+     *
+     * @param geom
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     */
+    public static void toGeojsonGeometry(Geometry geom, StringBuilder sb, int maxDecimals) {
         if (geom instanceof Point) {
-            toGeojsonPoint((Point) geom, sb);
+            toGeojsonPoint((Point) geom, sb, maxDecimals);
         } else if (geom instanceof LineString) {
-            toGeojsonLineString((LineString) geom, sb);
+            toGeojsonLineString((LineString) geom, sb, maxDecimals);
         } else if (geom instanceof Polygon) {
-            toGeojsonPolygon((Polygon) geom, sb);
+            toGeojsonPolygon((Polygon) geom, sb, maxDecimals);
         } else if (geom instanceof MultiPoint) {
-            toGeojsonMultiPoint((MultiPoint) geom, sb);
+            toGeojsonMultiPoint((MultiPoint) geom, sb, maxDecimals);
         } else if (geom instanceof MultiLineString) {
-            toGeojsonMultiLineString((MultiLineString) geom, sb);
+            toGeojsonMultiLineString((MultiLineString) geom, sb, maxDecimals);
         } else if (geom instanceof MultiPolygon) {
-            toGeojsonMultiPolygon((MultiPolygon) geom, sb);
+            toGeojsonMultiPolygon((MultiPolygon) geom, sb, maxDecimals);
         } else {
-            toGeojsonGeometryCollection((GeometryCollection) geom, sb);
+            toGeojsonGeometryCollection((GeometryCollection) geom, sb, maxDecimals);
         }
     }
 
@@ -117,13 +166,20 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonPoint(Point point, StringBuilder sb) {
-        Coordinate coord = point.getCoordinate();
-        sb.append("{\"type\":\"Point\",\"coordinates\":[");
-        sb.append(coord.x).append(",").append(coord.y);
-        if (!Double.isNaN(coord.z)) {
-            sb.append(",").append(coord.z);
-        }
-        sb.append("]}");
+        toGeojsonPoint(point, sb, -1);
+    }
+
+    /**
+     * @param point
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @see #toGeojsonPoint(Point, StringBuilder)
+     */
+    public static void toGeojsonPoint(Point point, StringBuilder sb, int maxDecimals) {
+        sb.append("{\"type\":\"Point\",\"coordinates\":");
+        toGeojsonCoordinate(point.getCoordinateSequence(), 0, sb, maxDecimals);
+        sb.append("}");
     }
 
     /**
@@ -137,9 +193,25 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonMultiPoint(MultiPoint multiPoint, StringBuilder sb) {
-        sb.append("{\"type\":\"MultiPoint\",\"coordinates\":");
-        toGeojsonCoordinates(multiPoint.getCoordinates(), sb);
-        sb.append("}");
+        toGeojsonMultiPoint(multiPoint, sb, -1);
+    }
+
+    /**
+     * @param multiPoint
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @see #toGeojsonMultiPoint(MultiPoint, StringBuilder)
+     */
+    public static void toGeojsonMultiPoint(MultiPoint multiPoint, StringBuilder sb, int maxDecimals) {
+        sb.append("{\"type\":\"MultiPoint\",\"coordinates\":[");
+        for (int i = 0; i < multiPoint.getNumGeometries(); i++) {
+            toGeojsonCoordinate(((Point) multiPoint.getGeometryN(i)).getCoordinateSequence(), 0, sb, maxDecimals);
+            if (i < multiPoint.getNumGeometries() - 1) {
+                sb.append(",");
+            }
+        }
+        sb.append("]}");
     }
 
     /**
@@ -153,8 +225,19 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonLineString(LineString lineString, StringBuilder sb) {
+        toGeojsonLineString(lineString, sb, -1);
+    }
+
+    /**
+     * @param lineString
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @see #toGeojsonLineString(LineString, StringBuilder)
+     */
+    public static void toGeojsonLineString(LineString lineString, StringBuilder sb, int maxDecimals) {
         sb.append("{\"type\":\"LineString\",\"coordinates\":");
-        toGeojsonCoordinates(lineString.getCoordinates(), sb);
+        toGeojsonCoordinates(lineString.getCoordinateSequence(), sb, maxDecimals);
         sb.append("}");
     }
 
@@ -171,9 +254,20 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonMultiLineString(MultiLineString multiLineString, StringBuilder sb) {
+        toGeojsonMultiLineString(multiLineString, sb, -1);
+    }
+
+    /**
+     * @param multiLineString
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @see #toGeojsonMultiLineString(MultiLineString, StringBuilder)
+     */
+    public static void toGeojsonMultiLineString(MultiLineString multiLineString, StringBuilder sb, int maxDecimals) {
         sb.append("{\"type\":\"MultiLineString\",\"coordinates\":[");
         for (int i = 0; i < multiLineString.getNumGeometries(); i++) {
-            toGeojsonCoordinates(multiLineString.getGeometryN(i).getCoordinates(), sb);
+            toGeojsonCoordinates(((LineString) multiLineString.getGeometryN(i)).getCoordinateSequence(), sb, maxDecimals);
             if (i < multiLineString.getNumGeometries() - 1) {
                 sb.append(",");
             }
@@ -204,13 +298,24 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonPolygon(Polygon polygon, StringBuilder sb) {
+        toGeojsonPolygon(polygon, sb, -1);
+    }
+
+    /**
+     * @param polygon
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @see #toGeojsonPolygon(Polygon, StringBuilder)
+     */
+    public static void toGeojsonPolygon(Polygon polygon, StringBuilder sb, int maxDecimals) {
         sb.append("{\"type\":\"Polygon\",\"coordinates\":[");
         //Process exterior ring
-        toGeojsonCoordinates(polygon.getExteriorRing().getCoordinates(), sb);
+        toGeojsonCoordinates(polygon.getExteriorRing().getCoordinateSequence(), sb, maxDecimals);
         //Process interior rings
         for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
             sb.append(",");
-            toGeojsonCoordinates(polygon.getInteriorRingN(i).getCoordinates(), sb);
+            toGeojsonCoordinates(polygon.getInteriorRingN(i).getCoordinateSequence(), sb, maxDecimals);
         }
         sb.append("]}");
     }
@@ -229,17 +334,28 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonMultiPolygon(MultiPolygon multiPolygon, StringBuilder sb) {
+        toGeojsonMultiPolygon(multiPolygon, sb, -1);
+    }
+
+    /**
+     * @param multiPolygon
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @see #toGeojsonMultiPolygon(MultiPolygon, StringBuilder)
+     */
+    public static void toGeojsonMultiPolygon(MultiPolygon multiPolygon, StringBuilder sb, int maxDecimals) {
         sb.append("{\"type\":\"MultiPolygon\",\"coordinates\":[");
 
         for (int i = 0; i < multiPolygon.getNumGeometries(); i++) {
             Polygon p = (Polygon) multiPolygon.getGeometryN(i);
             sb.append("[");
             //Process exterior ring
-            toGeojsonCoordinates(p.getExteriorRing().getCoordinates(), sb);
+            toGeojsonCoordinates(p.getExteriorRing().getCoordinateSequence(), sb, maxDecimals);
             //Process interior rings
             for (int j = 0; j < p.getNumInteriorRing(); j++) {
                 sb.append(",");
-                toGeojsonCoordinates(p.getInteriorRingN(j).getCoordinates(), sb);
+                toGeojsonCoordinates(p.getInteriorRingN(j).getCoordinateSequence(), sb, maxDecimals);
             }
             sb.append("]");
             if (i < multiPolygon.getNumGeometries() - 1) {
@@ -267,15 +383,26 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @param sb
      */
     public static void toGeojsonGeometryCollection(GeometryCollection geometryCollection, StringBuilder sb) {
+        toGeojsonGeometryCollection(geometryCollection, sb, -1);
+    }
+
+    /**
+     * @param geometryCollection
+     * @param sb
+     * @param maxDecimals Maximum number of decimals of the coordinates, -1 for
+     * the full double precision
+     * @see #toGeojsonGeometryCollection(GeometryCollection, StringBuilder)
+     */
+    public static void toGeojsonGeometryCollection(GeometryCollection geometryCollection, StringBuilder sb, int maxDecimals) {
         sb.append("{\"type\":\"GeometryCollection\",\"geometries\":[");
         for (int i = 0; i < geometryCollection.getNumGeometries(); i++) {
             Geometry geom = geometryCollection.getGeometryN(i);
             if (geom instanceof Point) {
-                toGeojsonPoint((Point) geom, sb);
+                toGeojsonPoint((Point) geom, sb, maxDecimals);
             } else if (geom instanceof LineString) {
-                toGeojsonLineString((LineString) geom, sb);
+                toGeojsonLineString((LineString) geom, sb, maxDecimals);
             } else if (geom instanceof Polygon) {
-                toGeojsonPolygon((Polygon) geom, sb);
+                toGeojsonPolygon((Polygon) geom, sb, maxDecimals);
             }
             if (i < geometryCollection.getNumGeometries() - 1) {
                 sb.append(",");
@@ -327,6 +454,101 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
         sb.append("]");
     }
 
+    /**
+     * Convert a coordinate sequence to a GeoJSON coordinates representation.
+     *
+     * Syntax:
+     *
+     * [[X1,Y1],[X2,Y2]]
+     *
+     * @param coords
+     * @param sb
+     * @param maxDecimals Maximum number of decimals, -1 for the full double
+     * precision
+     */
+    public static void toGeojsonCoordinates(CoordinateSequence coords, StringBuilder sb, int maxDecimals) {
+        sb.append("[");
+        for (int i = 0; i < coords.size(); i++) {
+            toGeojsonCoordinate(coords, i, sb, maxDecimals);
+            if (i < coords.size() - 1) {
+                sb.append(",");
+            }
+        }
+        sb.append("]");
+    }
+
+    /**
+     * Convert a coordinate of a sequence to a GeoJSON representation. An empty
+     * sequence is written as an empty position.
+     *
+     * Syntax:
+     *
+     * [X,Y] or [X,Y,Z]
+     *
+     * @param coords
+     * @param index Coordinate index
+     * @param sb
+     * @param maxDecimals Maximum number of decimals, -1 for the full double
+     * precision
+     */
+    public static void toGeojsonCoordinate(CoordinateSequence coords, int index, StringBuilder sb, int maxDecimals) {
+        sb.append("[");
+        if (index < coords.size()) {
+            appendOrdinate(coords.getX(index), sb, maxDecimals);
+            sb.append(",");
+            appendOrdinate(coords.getY(index), sb, maxDecimals);
+            if (coords.getDimension() > 2) {
+                double z = coords.getOrdinate(index, CoordinateSequence.Z);
+                if (!Double.isNaN(z)) {
+                    sb.append(",");
+                    appendOrdinate(z, sb, maxDecimals);
+                }
+            }
+        }
+        sb.append("]");
+    }
+
+    /**
+     * Append an ordinate rounded to the maximum number of decimals. The
+     * rounded value is formatted from its integral and fractional digits,
+     * trailing zeros are removed.
+     *
+     * @param value
+     * @param sb
+     * @param maxDecimals Maximum number of decimals, -1 for the full double
+     * precision
+     */
+    private static void appendOrdinate(double value, StringBuilder sb, int maxDecimals) {
+        if (maxDecimals >= 0 && maxDecimals < POWERS_OF_TEN.length) {
+            long scale = POWERS_OF_TEN[maxDecimals];
+            double scaled = value * scale;
+            // The rounded value must stay exact in a long and in a double
+            if (Math.abs(scaled) < POWERS_OF_TEN[POWERS_OF_TEN.length - 1]) {
+                long rounded = Math.round(scaled);
+                if (rounded < 0) {
+                    sb.append('-');
+                    rounded = -rounded;
+                }
+                sb.append(rounded / scale);
+                long fraction = rounded % scale;
+                if (fraction != 0) {
+                    int decimals = maxDecimals;
+                    while (fraction % 10 == 0) {
+                        fraction /= 10;
+                        decimals--;
+                    }
+                    sb.append('.');
+                    for (long digit = POWERS_OF_TEN[decimals - 1]; digit > fraction; digit /= 10) {
+                        sb.append('0');
+                    }
+                    sb.append(fraction);
+                }
+                return;
+            }
+        }
+        sb.append(value);
+    }
+
     /**
      * Convert a JTS Envelope to a GeoJSON representation.
      *
@@ -0,0 +1,88 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.geojson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.vividsolutions.jts.geom.Geometry;
+import org.h2gis.h2spatialapi.DeterministicScalarFunction;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Convert a GeoJSON geometry into a Geometry instance.
+ *
+ * @author Nicolas Fortin
+ */
+public class ST_GeomFromGeoJSON extends DeterministicScalarFunction {
+    /** The factory is thread safe, it is shared by all the calls */
+    private static final JsonFactory JSON_FACTORY = GeoJsonFeatureParser.createJsonFactory();
+
+    /**
+     * Default constructor
+     */
+    public ST_GeomFromGeoJSON() {
+        addProperty(PROP_REMARKS, "Convert a GeoJSON 1.0 geometry object into a geometry instance.\n"
+                + "The type member must be the first member of the geometry object.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "toGeometry";
+    }
+
+    /**
+     * Convert a GeoJSON geometry into a Geometry
+     *
+     * Syntax:
+     *
+     * {"type": "Point", "coordinates": [102.0, 0.5]}
+     *
+     * @param geojson GeoJSON geometry object
+     * @return Geometry instance or null if parameter is null
+     * @throws SQLException If the GeoJSON geometry is invalid
+     */
+    public static Geometry toGeometry(String geojson) throws SQLException {
+        if (geojson == null) {
+            return null;
+        }
+        try {
+            JsonParser jp = JSON_FACTORY.createParser(geojson);
+            try {
+                if (jp.nextToken() != JsonToken.START_OBJECT) {
+                    throw new SQLException("Cannot parse the GeoJSON, a geometry object is expected.");
+                }
+                return new GeoJsonFeatureParser().parseGeometry(jp);
+            } finally {
+                jp.close();
+            }
+        } catch (IOException ex) {
+            throw new SQLException("Cannot parse the GeoJSON.", ex);
+        }
+    }
+}
@@ -28,7 +28,8 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
-import org.h2gis.drivers.gpx.model.GpxParser;
+import org.h2gis.drivers.gpx.model.AbstractGpxParserDefault;
+import org.h2gis.drivers.gpx.model.GpxPullParser;
 import org.h2gis.h2spatialapi.DriverFunction;
 import org.h2gis.h2spatialapi.ProgressVisitor;
 
@@ -40,6 +41,21 @@ import org.h2gis.h2spatialapi.ProgressVisitor;
 public class GPXDriverFunction implements DriverFunction {
 
     public static String DESCRIPTION = "GPX file (1.1 and 1.0)";
+    private int batchSize = AbstractGpxParserDefault.DEFAULT_BATCH_SIZE;
+
+    /**
+     * @param batchSize Number of rows sent to the database at once
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return Number of rows sent to the database at once
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
 
     @Override
     public IMPORT_DRIVER_TYPE getImportDriverType() {
@@ -72,7 +88,8 @@ public class GPXDriverFunction implements DriverFunction {
 
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress) throws SQLException, IOException {
-        GpxParser gpd = new GpxParser();
+        GpxPullParser gpd = new GpxPullParser();
+        gpd.setBatchSize(batchSize);
         gpd.read(fileName, tableReference, connection);
     }
 }
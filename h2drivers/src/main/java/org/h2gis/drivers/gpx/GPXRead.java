@@ -24,6 +24,7 @@
  */
 package org.h2gis.drivers.gpx;
 
+import org.h2gis.drivers.utility.FileUtil;
 import org.h2gis.h2spatialapi.AbstractFunction;
 import org.h2gis.h2spatialapi.EmptyProgressVisitor;
 import org.h2gis.h2spatialapi.ScalarFunction;
@@ -76,7 +77,6 @@ public class GPXRead extends AbstractFunction implements ScalarFunction {
      * @throws SQLException
      */
     public static void readGPX(Connection connection, String fileName) throws IOException, SQLException {
-        final String name = new File(fileName).getName();
-        readGPX(connection, fileName, name.substring(0, name.lastIndexOf(".")).toUpperCase());
+        readGPX(connection, fileName, FileUtil.getBaseName(new File(fileName)).toUpperCase());
     }
 }
@@ -25,13 +25,15 @@
 package org.h2gis.drivers.gpx.model;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import org.h2gis.drivers.utility.FileUtil;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 import org.xml.sax.Attributes;
@@ -86,6 +88,12 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
     private String keywords;
     // The max size of the StringStack
     public static final int STRINGSTACK_SIZE = 50;
+    // Default number of rows sent to the database at once
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    // Number of rows sent to the database at once
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    // Number of rows added to the batches of the prepared statements since the last execution
+    private int pendingRows = 0;
 
     /**
      * Initialisation of all the indicators used to read the document.
@@ -134,7 +142,8 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
      * Reads the document and parses it. The other methods are called
      * automatically when corresponding markup is found.
      *
-     * @param inputFile a File representing the gpx file to read
+     * @param inputFile a File representing the gpx file to read, a gpx.gz
+     * file is decompressed while it is read
      * @param tableName the table used to create all tables
      * @param connection the connection to the database
      * @return a boolean value if the parser ends successfully or not
@@ -163,12 +172,24 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
         setTrkSegmentsPreparedStmt(GPXTablesFactory.createTrackSegmentsTable(connection, trackSegmentsTableName));
         setTrkPointsPreparedStmt(GPXTablesFactory.createTrackPointsTable(connection, trackPointsTableName));
 
+        // All the rows are inserted in a single transaction, unless the caller manages the transaction
+        final boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        boolean committed = false;
+        pendingRows = 0;
         // Initialisation of the contentHandler by default
+        InputStream fis = null;
         try {
-            setReader(XMLReaderFactory.createXMLReader());
-            getReader().setErrorHandler(this);
-            getReader().setContentHandler(this);
-            getReader().parse(new InputSource(new FileInputStream(inputFile)));
+            // gz files are decompressed while they are parsed
+            fis = FileUtil.openInputStream(inputFile);
+            parse(fis);
+            executeBatches();
+            if (autoCommit) {
+                connection.commit();
+                committed = true;
+            }
             success = true;
         } catch (SAXException ex) {
             throw new SQLException(ex);
@@ -181,15 +202,102 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
             getRteptPreparedStmt().close();
             getTrkPreparedStmt().close();
             getTrkSegmentsPreparedStmt().close();
-            getTrkSegmentsPreparedStmt().close();
+            getTrkPointsPreparedStmt().close();
+            if (autoCommit) {
+                if (!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            }
             //We drop the table when no gpx data are imported.
             tablesCleaner(connection, new String[]{wptTableName, routeTableName, routePointsTableName,
                 trackTableName, trackSegmentsTableName, trackPointsTableName});
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (IOException ex) {
+                throw new SQLException(ex);
+            }
         }
 
         return success;
     }
 
+    /**
+     * Parses the document with a SAX reader, this parser is the default
+     * content handler. The rows are inserted through
+     * {@link #insertRow(PreparedStatement, Object[])}.
+     *
+     * @param inputStream the content of the gpx file
+     * @throws SAXException if the document is not valid
+     * @throws IOException if the document cannot be read
+     * @throws SQLException if the rows cannot be inserted
+     */
+    protected void parse(InputStream inputStream) throws SAXException, IOException, SQLException {
+        setReader(XMLReaderFactory.createXMLReader());
+        getReader().setErrorHandler(this);
+        getReader().setContentHandler(this);
+        getReader().parse(new InputSource(inputStream));
+    }
+
+    /**
+     * Add a row to the batch of a prepared statement. The batches of all the
+     * tables are executed when the batch size is reached.
+     *
+     * @param pStm the prepared statement of the table
+     * @param values the values of the row, in the column order
+     * @throws SQLException if the rows cannot be inserted
+     */
+    void insertRow(PreparedStatement pStm, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            pStm.setObject(i + 1, values[i]);
+        }
+        pStm.addBatch();
+        pendingRows++;
+        if (pendingRows >= batchSize) {
+            executeBatches();
+        }
+    }
+
+    /**
+     * Send the pending rows of all the tables to the database.
+     *
+     * @throws SQLException if the rows cannot be inserted
+     */
+    private void executeBatches() throws SQLException {
+        if (pendingRows > 0) {
+            getWptPreparedStmt().executeBatch();
+            getRtePreparedStmt().executeBatch();
+            getRteptPreparedStmt().executeBatch();
+            getTrkPreparedStmt().executeBatch();
+            getTrkSegmentsPreparedStmt().executeBatch();
+            getTrkPointsPreparedStmt().executeBatch();
+            pendingRows = 0;
+        }
+    }
+
+    /**
+     * Set the number of rows sent to the database at once.
+     *
+     * @param batchSize number of rows, greater than 0
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be greater than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gives the number of rows sent to the database at once.
+     *
+     * @return
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     /**
      * This method is used to delete tables that contain any rows.
      */
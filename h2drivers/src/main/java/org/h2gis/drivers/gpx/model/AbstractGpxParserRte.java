@@ -2,7 +2,6 @@ package org.h2gis.drivers.gpx.model;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.LineString;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import java.util.ArrayList;
@@ -108,14 +107,7 @@ public abstract class AbstractGpxParserRte extends AbstractGpxParser {
             }
             // if </rte> markup is found, the currentLine is added in the table rtedbd and the default contentHandler is setted.
             try {
-                PreparedStatement pStm = getRtePreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentLine().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                parent.insertRow(getRtePreparedStmt(), getCurrentLine().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the route line ", ex);
             }
@@ -125,14 +117,7 @@ public abstract class AbstractGpxParserRte extends AbstractGpxParser {
             // if </rtept> markup is found, the currentPoint is added in the table rteptdbd.
             point = false;
             try {
-                PreparedStatement pStm = getRteptPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentPoint().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                parent.insertRow(getRteptPreparedStmt(), getCurrentPoint().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the route points ", ex);
             }
@@ -4,7 +4,6 @@ import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.geom.MultiLineString;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import java.util.ArrayList;
@@ -124,14 +123,7 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
             getCurrentLine().setGeometry(geometry);
             // if </trk> markup is found, the currentLine is added in the table rtedbd and the default contentHandler is setted.
             try {
-                PreparedStatement pStm = getTrkPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentLine().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                parent.insertRow(getTrkPreparedStmt(), getCurrentLine().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the track line ", ex);
             }
@@ -149,14 +141,7 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
             }
             // if </trkseg> markup is found, the currentSegment is added in the table trksegdbd.
             try {
-                PreparedStatement pStm = getTrkSegmentsPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentSegment().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                parent.insertRow(getTrkSegmentsPreparedStmt(), getCurrentSegment().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the track segment ", ex);
             }
@@ -165,14 +150,7 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
             // if </trkpt> markup is found, the currentPoint is added in the table trkptdbd.
             point = false;
             try {
-                PreparedStatement pStm = getTrkPointsPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentPoint().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                parent.insertRow(getTrkPointsPreparedStmt(), getCurrentPoint().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the track waypoints.", ex);
             }
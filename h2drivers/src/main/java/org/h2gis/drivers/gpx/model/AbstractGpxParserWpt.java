@@ -24,7 +24,6 @@
  */
 package org.h2gis.drivers.gpx.model;
 
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -94,14 +93,7 @@ public class AbstractGpxParserWpt extends AbstractGpxParser {
         if (getCurrentElement().equalsIgnoreCase(GPXTags.WPT)) {
             //if </wpt> markup is found, the currentPoint is added in the table wptdbd and the default contentHandler is setted.
             try {
-                PreparedStatement pStm = getWptPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentPoint().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                parent.insertRow(getWptPreparedStmt(), getCurrentPoint().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the waypoint.", ex);
             }
@@ -1,6 +1,7 @@
 package org.h2gis.drivers.gpx.model;
 
 import com.vividsolutions.jts.geom.Geometry;
+import java.util.Arrays;
 
 
 import org.xml.sax.Attributes;
@@ -148,6 +149,14 @@ public class GPXLine {
         lineValues[GpxMetadata.LINEEXTENSIONS] = true;
     }
 
+    /**
+     * Set all the values to null. The array is kept, in order to store the
+     * next route or track.
+     */
+    public final void resetValues() {
+        Arrays.fill(lineValues, null);
+    }
+
     /**
      * Gives access to the route or track's values
      *
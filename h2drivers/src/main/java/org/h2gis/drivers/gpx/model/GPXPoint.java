@@ -24,7 +24,7 @@
  */
 package org.h2gis.drivers.gpx.model;
 
-
+import java.util.Arrays;
 import org.xml.sax.Attributes;
 
 /**
@@ -292,6 +292,14 @@ public class GPXPoint {
     }    
     
 
+    /**
+     * Set all the values to null. The array is kept, in order to store the
+     * next point.
+     */
+    public final void resetValues() {
+        Arrays.fill(ptValues, null);
+    }
+
     /**
      * Gives access to the point's values
      *
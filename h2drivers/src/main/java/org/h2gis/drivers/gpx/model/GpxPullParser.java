@@ -0,0 +1,546 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.gpx.model;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.LineString;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * GPX parser based on a StAX pull reader. It fills the same tables as
+ * {@link GpxParser}, but the document is read without SAX handlers and
+ * element stacks. The text of the elements is copied in a single character
+ * buffer, numbers are decoded from this buffer and the point and line values
+ * are reused from one row to the next.
+ *
+ * The identifiers of the route points, track segments and track points are
+ * unique in the file. The metadata of the document (author, copyright,
+ * bounds) are not read.
+ *
+ * @author Nicolas Fortin
+ */
+public class GpxPullParser extends AbstractGpxParserDefault {
+
+    // Exact powers of ten, a decimal value of less than 16 digits divided by these is correctly rounded
+    private static final double[] POWERS_OF_TEN = new double[]{1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+        1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    // Max number of digits of a value decoded without Double.parseDouble
+    private static final int MAX_FAST_DIGITS = 15;
+    // Text of the last read element
+    private char[] text = new char[256];
+    private int textLength;
+    // Values of the row being parsed, one instance by table
+    private GPXPoint wayPoint;
+    private GPXPoint routePoint;
+    private GPXPoint trackPoint;
+    private GPXLine route;
+    private GPXLine track;
+    private GPXLine trackSegment;
+    // Coordinates of the current route or track segment
+    private final List<Coordinate> coordinates = new ArrayList<Coordinate>();
+    // Track segments of the current track
+    private final List<LineString> segments = new ArrayList<LineString>();
+    // Identifiers
+    private int idWpt;
+    private int idRte;
+    private int idRtePt;
+    private int idTrk;
+    private int idTrkSeg;
+    private int idTrkPt;
+
+    /**
+     * Create a new GPX pull parser.
+     */
+    public GpxPullParser() {
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        wayPoint = new GPXPoint(GpxMetadata.WPTFIELDCOUNT);
+        routePoint = new GPXPoint(GpxMetadata.RTEPTFIELDCOUNT);
+        trackPoint = new GPXPoint(GpxMetadata.TRKPTFIELDCOUNT);
+        route = new GPXLine(GpxMetadata.RTEFIELDCOUNT);
+        track = new GPXLine(GpxMetadata.TRKFIELDCOUNT);
+        trackSegment = new GPXLine(GpxMetadata.TRKSEGFIELDCOUNT);
+        idWpt = 1;
+        idRte = 1;
+        idRtePt = 1;
+        idTrk = 1;
+        idTrkSeg = 1;
+        idTrkPt = 1;
+    }
+
+    @Override
+    String getCopyright() {
+        return null;
+    }
+
+    /**
+     * Parses the document with a StAX reader.
+     *
+     * @param inputStream the content of the gpx file
+     * @throws SQLException if the document is not valid or if the rows cannot
+     * be inserted
+     */
+    @Override
+    protected void parse(InputStream inputStream) throws SQLException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if (name.equalsIgnoreCase(GPXTags.TRK)) {
+                            parseTrack(reader);
+                        } else if (name.equalsIgnoreCase(GPXTags.WPT)) {
+                            parsePoint(reader, wayPoint, idWpt++);
+                            insertRow(getWptPreparedStmt(), wayPoint.getValues());
+                        } else if (name.equalsIgnoreCase(GPXTags.RTE)) {
+                            parseRoute(reader);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    /**
+     * Read a route and its points, the reader is positioned on the
+     * &lt;rte&gt; element.
+     */
+    private void parseRoute(XMLStreamReader reader) throws XMLStreamException, SQLException {
+        route.resetValues();
+        int routeId = idRte++;
+        route.setValue(GpxMetadata.LINEID, routeId);
+        coordinates.clear();
+        while (nextElement(reader)) {
+            if (reader.getLocalName().equalsIgnoreCase(GPXTags.RTEPT)) {
+                coordinates.add(parsePoint(reader, routePoint, idRtePt++));
+                routePoint.setValue(GpxMetadata.RTEPT_RTEID, routeId);
+                insertRow(getRteptPreparedStmt(), routePoint.getValues());
+            } else {
+                parseLineElement(reader, route);
+            }
+        }
+        // A route of a single point does not have a geometry
+        if (coordinates.size() > 1) {
+            route.setGeometry(getGeometryFactory().createLineString(coordinates.toArray(new Coordinate[coordinates.size()])));
+        }
+        insertRow(getRtePreparedStmt(), route.getValues());
+    }
+
+    /**
+     * Read a track, its segments and their points, the reader is positioned
+     * on the &lt;trk&gt; element.
+     */
+    private void parseTrack(XMLStreamReader reader) throws XMLStreamException, SQLException {
+        track.resetValues();
+        int trackId = idTrk++;
+        track.setValue(GpxMetadata.LINEID, trackId);
+        segments.clear();
+        while (nextElement(reader)) {
+            if (reader.getLocalName().equalsIgnoreCase(GPXTags.TRKSEG)) {
+                parseTrackSegment(reader, trackId);
+            } else {
+                parseLineElement(reader, track);
+            }
+        }
+        track.setGeometry(getGeometryFactory().createMultiLineString(segments.toArray(new LineString[segments.size()])));
+        insertRow(getTrkPreparedStmt(), track.getValues());
+    }
+
+    /**
+     * Read a track segment and its points, the reader is positioned on the
+     * &lt;trkseg&gt; element.
+     */
+    private void parseTrackSegment(XMLStreamReader reader, int trackId) throws XMLStreamException, SQLException {
+        trackSegment.resetValues();
+        int segmentId = idTrkSeg++;
+        trackSegment.setValue(GpxMetadata.TRKSEGID, segmentId);
+        trackSegment.setValue(GpxMetadata.TRKSEG_TRKID, trackId);
+        coordinates.clear();
+        while (nextElement(reader)) {
+            String name = reader.getLocalName();
+            if (name.equalsIgnoreCase(GPXTags.TRKPT)) {
+                coordinates.add(parsePoint(reader, trackPoint, idTrkPt++));
+                trackPoint.setValue(GpxMetadata.TRKPT_TRKSEGID, segmentId);
+                insertRow(getTrkPointsPreparedStmt(), trackPoint.getValues());
+            } else {
+                if (name.equalsIgnoreCase(GPXTags.EXTENSIONS)) {
+                    trackSegment.setValue(GpxMetadata.TRKSEGEXTENSIONS, true);
+                }
+                skipElement(reader);
+            }
+        }
+        if (coordinates.size() > 1) {
+            LineString geometry = getGeometryFactory().createLineString(coordinates.toArray(new Coordinate[coordinates.size()]));
+            trackSegment.setGeometry(geometry);
+            segments.add(geometry);
+        }
+        insertRow(getTrkSegmentsPreparedStmt(), trackSegment.getValues());
+    }
+
+    /**
+     * Read a child element of a route or a track, the reader is positioned on
+     * the start of the element and is moved to its end.
+     */
+    private void parseLineElement(XMLStreamReader reader, GPXLine line) throws XMLStreamException, SQLException {
+        String name = reader.getLocalName();
+        if (name.equalsIgnoreCase(GPXTags.NAME)) {
+            line.setValue(GpxMetadata.LINENAME, readString(reader));
+        } else if (name.equalsIgnoreCase(GPXTags.DESC)) {
+            line.setValue(GpxMetadata.LINEDESC, readString(reader));
+        } else if (name.equalsIgnoreCase(GPXTags.CMT)) {
+            line.setValue(GpxMetadata.LINECMT, readString(reader));
+        } else if (name.equalsIgnoreCase(GPXTags.SRC)) {
+            line.setValue(GpxMetadata.LINESRC, readString(reader));
+        } else if (name.equalsIgnoreCase(GPXTags.NUMBER)) {
+            line.setValue(GpxMetadata.LINENUMBER, readInt(reader, name));
+        } else if (name.equalsIgnoreCase(GPXTags.TYPE)) {
+            line.setValue(GpxMetadata.LINETYPE, readString(reader));
+        } else if (name.equalsIgnoreCase(GPXTags.LINK)) {
+            line.setValue(GpxMetadata.LINELINK_HREF, reader.getAttributeValue(null, GPXTags.HREF));
+            String linkText = readLinkText(reader);
+            if (linkText != null) {
+                line.setValue(GpxMetadata.LINELINK_HREFTITLE, linkText);
+            }
+        } else {
+            if (name.equalsIgnoreCase(GPXTags.EXTENSIONS)) {
+                line.setValue(GpxMetadata.LINEEXTENSIONS, true);
+            }
+            skipElement(reader);
+        }
+    }
+
+    /**
+     * Read a waypoint, a route point or a track point. The reader is
+     * positioned on the start of the point element and is moved to its end.
+     *
+     * @param reader the StAX reader
+     * @param point the point values, they are cleared before reading
+     * @param id the identifier of the point
+     * @return the coordinate of the point
+     */
+    private Coordinate parsePoint(XMLStreamReader reader, GPXPoint point, int id) throws XMLStreamException, SQLException {
+        point.resetValues();
+        double lat = readDoubleAttribute(reader, GPXTags.LAT);
+        double lon = readDoubleAttribute(reader, GPXTags.LON);
+        // As GpxParser, the elevation is stored in the ele field but not in the geometry
+        Coordinate coordinate = new Coordinate(lon, lat);
+        point.setValue(GpxMetadata.THE_GEOM, getGeometryFactory().createPoint(coordinate));
+        point.setValue(GpxMetadata.PTID, id);
+        point.setValue(GpxMetadata.PTLAT, lat);
+        point.setValue(GpxMetadata.PTLON, lon);
+        point.setValue(GpxMetadata.PTELE, Double.NaN);
+        while (nextElement(reader)) {
+            String name = reader.getLocalName();
+            // The most frequent elements of track points are tested first
+            if (name.equalsIgnoreCase(GPXTags.ELE)) {
+                point.setValue(GpxMetadata.PTELE, readDouble(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.TIME)) {
+                point.setValue(GpxMetadata.PTTIME, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.HDOP)) {
+                point.setValue(GpxMetadata.PTHDOP, readDouble(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.VDOP)) {
+                point.setValue(GpxMetadata.PTVDOP, readDouble(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.PDOP)) {
+                point.setValue(GpxMetadata.PTPDOP, readDouble(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.SAT)) {
+                point.setValue(GpxMetadata.PTSAT, readInt(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.FIX)) {
+                point.setValue(GpxMetadata.PTFIX, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.MAGVAR)) {
+                point.setValue(GpxMetadata.PTMAGVAR, readDouble(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.GEOIDHEIGHT)) {
+                point.setValue(GpxMetadata.PTGEOIDWEIGHT, readDouble(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.NAME)) {
+                point.setValue(GpxMetadata.PTNAME, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.CMT)) {
+                point.setValue(GpxMetadata.PTCMT, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.DESC)) {
+                point.setValue(GpxMetadata.PTDESC, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.SRC)) {
+                point.setValue(GpxMetadata.PTSRC, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.SYM)) {
+                point.setValue(GpxMetadata.PTSYM, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.TYPE)) {
+                point.setValue(GpxMetadata.PTTYPE, readString(reader));
+            } else if (name.equalsIgnoreCase(GPXTags.AGEOFDGPSDATA)) {
+                point.setValue(GpxMetadata.PTAGEOFDGPSDATA, readDouble(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.DGPSID)) {
+                point.setValue(GpxMetadata.PTDGPSID, readInt(reader, name));
+            } else if (name.equalsIgnoreCase(GPXTags.LINK)) {
+                point.setValue(GpxMetadata.PTLINK, reader.getAttributeValue(null, GPXTags.HREF));
+                String linkText = readLinkText(reader);
+                if (linkText != null) {
+                    point.setValue(GpxMetadata.PTLINKTEXT, linkText);
+                }
+            } else {
+                if (name.equalsIgnoreCase(GPXTags.EXTENSIONS)) {
+                    point.setValue(GpxMetadata.PTEXTENSIONS, true);
+                }
+                skipElement(reader);
+            }
+        }
+        return coordinate;
+    }
+
+    /**
+     * Read the content of a &lt;link&gt; element.
+     *
+     * @return the content of the &lt;text&gt; element, null if there is no
+     * text element
+     */
+    private String readLinkText(XMLStreamReader reader) throws XMLStreamException {
+        String linkText = null;
+        while (nextElement(reader)) {
+            if (reader.getLocalName().equalsIgnoreCase(GPXTags.TEXT)) {
+                linkText = readString(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return linkText;
+    }
+
+    /**
+     * Move the reader to the next child element, the text between the child
+     * elements is ignored.
+     *
+     * @return true if the reader is on the start of a child element, false if
+     * it is on the end of the parent element
+     */
+    private static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Move the reader to the end of the current element.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Copy the text of the current element in the text buffer, the reader is
+     * moved to the end of the element. The text of the child elements is
+     * ignored.
+     */
+    private void readText(XMLStreamReader reader) throws XMLStreamException {
+        textLength = 0;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (depth == 1) {
+                        appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void appendText(char[] chars, int start, int length) {
+        if (textLength + length > text.length) {
+            char[] largerText = new char[Math.max(text.length * 2, textLength + length)];
+            System.arraycopy(text, 0, largerText, 0, textLength);
+            text = largerText;
+        }
+        System.arraycopy(chars, start, text, textLength, length);
+        textLength += length;
+    }
+
+    private String readString(XMLStreamReader reader) throws XMLStreamException {
+        readText(reader);
+        return new String(text, 0, textLength);
+    }
+
+    private double readDouble(XMLStreamReader reader, String name) throws XMLStreamException, SQLException {
+        readText(reader);
+        try {
+            return parseDouble(text, 0, textLength);
+        } catch (NumberFormatException ex) {
+            throw new SQLException("Cannot parse the " + name + " value", ex);
+        }
+    }
+
+    private int readInt(XMLStreamReader reader, String name) throws XMLStreamException, SQLException {
+        readText(reader);
+        try {
+            return parseInt(text, 0, textLength);
+        } catch (NumberFormatException ex) {
+            throw new SQLException("Cannot parse the " + name + " value", ex);
+        }
+    }
+
+    private double readDoubleAttribute(XMLStreamReader reader, String name) throws SQLException {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null) {
+            throw new SQLException("The " + name + " attribute of the point is missing");
+        }
+        textLength = 0;
+        if (value.length() > text.length) {
+            text = new char[value.length()];
+        }
+        value.getChars(0, value.length(), text, 0);
+        try {
+            return parseDouble(text, 0, value.length());
+        } catch (NumberFormatException ex) {
+            throw new SQLException("Cannot parse the " + name + " value", ex);
+        }
+    }
+
+    /**
+     * Decode a decimal number. Values of at most 15 digits without exponent
+     * are decoded without creating a String, the result is the same as
+     * {@link Double#parseDouble(String)}.
+     *
+     * @param chars characters buffer
+     * @param start first character of the number
+     * @param end index following the last character of the number
+     * @return the decoded value
+     * @throws NumberFormatException if the text is not a number
+     */
+    static double parseDouble(char[] chars, int start, int end) {
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean dot = false;
+        for (; i < end && digits <= MAX_FAST_DIGITS; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dot) {
+                    decimals++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i == end && digits > 0 && digits <= MAX_FAST_DIGITS) {
+            // Both operands are exact, the division is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[decimals];
+            return negative ? -value : value;
+        }
+        // Exponent, special values or too many digits
+        return Double.parseDouble(new String(chars, start, end - start));
+    }
+
+    /**
+     * Decode an integer, surrounding white spaces are ignored.
+     *
+     * @param chars characters buffer
+     * @param start first character of the number
+     * @param end index following the last character of the number
+     * @return the decoded value
+     * @throws NumberFormatException if the text is not an integer
+     */
+    static int parseInt(char[] chars, int start, int end) {
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        // 9 digits do not overflow
+        if (i < end && end - i <= 9) {
+            int value = 0;
+            for (; i < end; i++) {
+                char c = chars[i];
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == end) {
+                return negative ? -value : value;
+            }
+        }
+        return Integer.parseInt(new String(chars, start, end - start));
+    }
+}
@@ -26,11 +26,15 @@
 package org.h2gis.drivers.shp;
 
 import com.vividsolutions.jts.geom.Geometry;
+import org.h2gis.drivers.DriverManager;
+import org.h2gis.drivers.FileDriver;
 import org.h2gis.drivers.dbf.DBFDriverFunction;
 import org.h2gis.drivers.dbf.internal.DbaseFileHeader;
 import org.h2gis.drivers.shp.internal.SHPDriver;
 import org.h2gis.drivers.shp.internal.ShapeType;
 import org.h2gis.drivers.shp.internal.ShapefileHeader;
+import org.h2gis.drivers.utility.FileUtil;
+import org.h2gis.drivers.utility.ParallelFileDriverReader;
 import org.h2gis.h2spatialapi.DriverFunction;
 import org.h2gis.h2spatialapi.EmptyProgressVisitor;
 import org.h2gis.h2spatialapi.ProgressVisitor;
@@ -55,7 +59,68 @@ import java.util.List;
  */
 public class SHPDriverFunction implements DriverFunction {
     public static String DESCRIPTION = "ESRI shapefile";
-    private static final int BATCH_MAX_SIZE = 100;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int threadCount = ParallelFileDriverReader.getDefaultThreadCount();
+    private boolean writeSpatialIndex = false;
+    private boolean bulkLoad = false;
+
+    /**
+     * @param batchSize Number of rows sent to the database at once on import
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return Number of rows sent to the database at once on import
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param threadCount Number of threads used to decode the file on import
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @return Number of threads used to decode the file on import
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param writeSpatialIndex If true, a quadtree index (.qix) file is written on export
+     */
+    public void setWriteSpatialIndex(boolean writeSpatialIndex) {
+        this.writeSpatialIndex = writeSpatialIndex;
+    }
+
+    /**
+     * @return True if a quadtree index (.qix) file is written on export
+     */
+    public boolean isWriteSpatialIndex() {
+        return writeSpatialIndex;
+    }
+
+    /**
+     * @param bulkLoad If true, rows are copied into H2 tables by the database engine through a linked file table
+     *                 instead of JDBC batches. False by default. Other databases always use JDBC batches.
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    /**
+     * @return True if rows are copied into H2 tables through a linked file table
+     */
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
 
     @Override
     public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress) throws SQLException, IOException {
@@ -73,8 +138,10 @@ public class SHPDriverFunction implements DriverFunction {
      */
     public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress,String encoding) throws SQLException, IOException {
         TableLocation location = TableLocation.parse(tableReference);
-        int recordCount = JDBCUtilities.getRowCount(connection, tableReference);
-        ProgressVisitor copyProgress = progress.subProcess(recordCount);
+        // The table is read once, the record count is written in file headers on close
+        int recordEstimate = (int)Math.min(Integer.MAX_VALUE, JDBCUtilities.getRowCountEstimate(connection, tableReference));
+        ProgressVisitor copyProgress = progress.subProcess(Math.max(1, recordEstimate));
+        int recordCount = 0;
         //
         // Read Geometry Index and type
         List<String> spatialFieldNames = SFSUtilities.getGeometryFields(connection, TableLocation.parse(tableReference));
@@ -93,7 +160,6 @@ public class SHPDriverFunction implements DriverFunction {
                 if(encoding != null) {
                     header.setEncoding(encoding);
                 }
-                header.setNumRecords(recordCount);
                 SHPDriver shpDriver = null;
                 Object[] row = new Object[header.getNumFields() + 1];
                 while (rs.next()) {
@@ -112,13 +178,16 @@ public class SHPDriverFunction implements DriverFunction {
                         if(shapeType != null) {
                             shpDriver = new SHPDriver();
                             shpDriver.setGeometryFieldIndex(geoFieldIndex - 1);
+                            shpDriver.setWriteSpatialIndex(writeSpatialIndex);
                             shpDriver.initDriver(fileName,shapeType , header);
                         }
                     }
                     if(shpDriver != null) {
                         shpDriver.insertRow(row);
                     }
-                    copyProgress.endStep();
+                    if(++recordCount < recordEstimate) {
+                        copyProgress.endStep();
+                    }
                 }
                 if(shpDriver != null) {
                     shpDriver.close();
@@ -166,27 +235,33 @@ public class SHPDriverFunction implements DriverFunction {
      *
      * @param connection Active connection, do not close this connection.
      * @param tableReference [[catalog.]schema.]table reference
-     * @param fileName File path to read
+     * @param fileName File path to read, shp file or zip archive that contains the shapefile
      * @param forceEncoding If defined use this encoding instead of the one defined in dbf header.
      * @throws SQLException Table write error
      * @throws IOException File read error
      */
-    public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,String forceEncoding) throws SQLException, IOException {
+    public void importFile(Connection connection, String tableReference, final File fileName, ProgressVisitor progress,final String forceEncoding) throws SQLException, IOException {
+        if(FileUtil.isZip(fileName)) {
+            importZipFile(connection, tableReference, fileName, progress, forceEncoding);
+            return;
+        }
         SHPDriver shpDriver = new SHPDriver();
         shpDriver.initDriverFromFile(fileName, forceEncoding);
-        ProgressVisitor copyProgress = progress.subProcess((int)(shpDriver.getRowCount() / BATCH_MAX_SIZE));
+        // One step by batch, including the last partial batch
+        ProgressVisitor copyProgress = progress.subProcess((int)((shpDriver.getRowCount() + batchSize - 1) / batchSize));
         // PostGIS does not show sql
         String lastSql = "";
         try {
             DbaseFileHeader dbfHeader = shpDriver.getDbaseFileHeader();
             ShapefileHeader shpHeader = shpDriver.getShapeFileHeader();
             // Build CREATE TABLE sql request
+            final boolean isH2 = JDBCUtilities.isH2DataBase(connection.getMetaData());
             Statement st = connection.createStatement();
-            String types = DBFDriverFunction.getSQLColumnTypes(dbfHeader, JDBCUtilities.isH2DataBase(connection.getMetaData()));
+            String types = DBFDriverFunction.getSQLColumnTypes(dbfHeader, isH2);
             if(!types.isEmpty()) {
                 types = ", " + types;
             }
-            if(JDBCUtilities.isH2DataBase(connection.getMetaData())) {
+            if(isH2) {
                 //H2 Syntax
                 st.execute(String.format("CREATE TABLE %s (the_geom %s %s)", TableLocation.parse(tableReference),
                     getSFSGeometryType(shpHeader), types));
@@ -200,31 +275,13 @@ public class SHPDriverFunction implements DriverFunction {
             }
             st.close();
             try {
-                        lastSql =
-                                String.format("INSERT INTO %s VALUES ( %s )", TableLocation.parse(tableReference),
-                                        DBFDriverFunction.getQuestionMark(dbfHeader.getNumFields() + 1));
-                        PreparedStatement preparedStatement = connection.prepareStatement(lastSql);
-                try {
-                    long batchSize = 0;
-                    for (int rowId = 0; rowId < shpDriver.getRowCount(); rowId++) {
-                        Object[] values = shpDriver.getRow(rowId);
-                        for (int columnId = 0; columnId < values.length; columnId++) {
-                            preparedStatement.setObject(columnId + 1, values[columnId]);
-                        }
-                        preparedStatement.addBatch();
-                        batchSize++;
-                        if (batchSize >= BATCH_MAX_SIZE) {
-                            preparedStatement.executeBatch();
-                            preparedStatement.clearBatch();
-                            batchSize = 0;
-                            copyProgress.endStep();
-                        }
-                    }
-                    if(batchSize > 0) {
-                        preparedStatement.executeBatch();
-                    }
-                } finally {
-                    preparedStatement.close();
+                if(isH2 && bulkLoad) {
+                    DriverManager.copyFile(connection, SHPEngine.class.getName(), fileName, tableReference,
+                            copyProgress, forceEncoding);
+                } else {
+                    lastSql = String.format("INSERT INTO %s VALUES ( %s )", TableLocation.parse(tableReference),
+                            DBFDriverFunction.getQuestionMark(dbfHeader.getNumFields() + 1));
+                    insertRows(connection, lastSql, fileName, forceEncoding, shpDriver.getRowCount(), copyProgress);
                 }
                 //TODO create spatial index on the_geom ?
             } catch (Exception ex) {
@@ -239,6 +296,84 @@ public class SHPDriverFunction implements DriverFunction {
         }
     }
 
+    /**
+     * Import the first shapefile of a zip archive. The shp, shx and dbf entries are streamed out of the archive in
+     * a temporary directory, the shapefile reader needs random access to these files.
+     */
+    private void importZipFile(Connection connection, String tableReference, File zipFile, ProgressVisitor progress,
+                               String forceEncoding) throws SQLException, IOException {
+        File directory = FileUtil.createTempDirectory("h2gis_shp");
+        try {
+            File shpFile = null;
+            for(File file : FileUtil.extractZipEntries(zipFile, directory, "shp", "shx", "dbf")) {
+                if(file.getName().toLowerCase().endsWith(".shp")) {
+                    shpFile = file;
+                    break;
+                }
+            }
+            if(shpFile == null) {
+                throw new SQLException("The archive " + zipFile.getName() + " does not contain a shp file");
+            }
+            importFile(connection, tableReference, shpFile, progress, forceEncoding);
+        } finally {
+            FileUtil.deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Insert rows through JDBC batches, the file is decoded by other threads.
+     */
+    private void insertRows(Connection connection, String insertSql, final File fileName, final String forceEncoding,
+                            long rowCount, ProgressVisitor copyProgress) throws SQLException, IOException {
+        // Insert all rows in a single transaction, unless the caller manage the transaction
+        final boolean autoCommit = connection.getAutoCommit();
+        if(autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        boolean committed = false;
+        try {
+            PreparedStatement preparedStatement = connection.prepareStatement(insertSql);
+            // Decode the file in other threads while this thread insert rows
+            ParallelFileDriverReader reader = new ParallelFileDriverReader(new ParallelFileDriverReader.FileDriverFactory() {
+                @Override
+                public FileDriver create() throws IOException {
+                    SHPDriver driver = new SHPDriver();
+                    driver.initDriverFromFile(fileName, forceEncoding);
+                    return driver;
+                }
+            }, rowCount, threadCount, batchSize);
+            try {
+                reader.start();
+                Object[][] rows;
+                while ((rows = reader.nextChunk()) != null) {
+                    for (Object[] values : rows) {
+                        for (int columnId = 0; columnId < values.length; columnId++) {
+                            preparedStatement.setObject(columnId + 1, values[columnId]);
+                        }
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                    preparedStatement.clearBatch();
+                    copyProgress.endStep();
+                }
+            } finally {
+                reader.close();
+                preparedStatement.close();
+            }
+            if(autoCommit) {
+                connection.commit();
+                committed = true;
+            }
+        } finally {
+            if(autoCommit) {
+                if(!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
     private static ShapeType getShapeTypeFromSFSGeometryTypeCode(int sfsGeometryTypeCode) throws SQLException {
         ShapeType shapeType;
         switch (sfsGeometryTypeCode) {
@@ -41,6 +41,8 @@ import java.util.List;
 
 /**
  * SHP Table factory.
+ * Table engine arguments are the file path, the optional DBF encoding and the optional file access mode
+ * (AUTO, HEAP or MAPPED).
  * @author Nicolas Fortin
  */
 public class SHPEngine extends FileEngine<SHPDriver> {
@@ -48,7 +50,7 @@ public class SHPEngine extends FileEngine<SHPDriver> {
     @Override
     protected SHPDriver createDriver(File filePath, List<String> args) throws IOException {
         SHPDriver driver = new SHPDriver();
-        driver.initDriverFromFile(filePath, args.size() > 1 ? args.get(1) : null);
+        driver.initDriverFromFile(filePath, getArgument(args, 1), getReadMode(args, 2));
         return driver;
     }
 
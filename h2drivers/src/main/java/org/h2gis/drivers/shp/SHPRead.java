@@ -52,15 +52,29 @@ public class SHPRead  extends AbstractFunction implements ScalarFunction {
      * Copy data from Shape File into a new table in specified connection.
      * @param connection Active connection
      * @param tableReference [[catalog.]schema.]table reference
-     * @param fileName File path of the SHP file
+     * @param fileName File path of the SHP file, or of a zip archive that contains the shapefile
      * @param forceEncoding Use this encoding instead of DBF file header encoding property.
      */
     public static void readShape(Connection connection, String fileName, String tableReference,String forceEncoding) throws IOException, SQLException {
+        readShape(connection, fileName, tableReference, forceEncoding, false);
+    }
+
+    /**
+     * Copy data from Shape File into a new table in specified connection.
+     * @param connection Active connection
+     * @param tableReference [[catalog.]schema.]table reference
+     * @param fileName File path of the SHP file, or of a zip archive that contains the shapefile
+     * @param forceEncoding Use this encoding instead of DBF file header encoding property.
+     * @param bulkLoad If true, rows are copied by the database engine through a linked file table
+     */
+    public static void readShape(Connection connection, String fileName, String tableReference,String forceEncoding,
+                                 boolean bulkLoad) throws IOException, SQLException {
         File file = new File(fileName);
         if(!file.exists()) {
             throw new FileNotFoundException("The following file does not exists:\n"+fileName);
         }
         SHPDriverFunction shpDriverFunction = new SHPDriverFunction();
+        shpDriverFunction.setBulkLoad(bulkLoad);
         shpDriverFunction.importFile(connection, tableReference, new File(fileName), new EmptyProgressVisitor(), forceEncoding);
     }
 
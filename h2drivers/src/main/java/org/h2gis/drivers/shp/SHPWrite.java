@@ -70,7 +70,23 @@ public class SHPWrite extends AbstractFunction implements ScalarFunction {
      * @throws SQLException
      */
     public static void exportTable(Connection connection, String fileName, String tableReference,String encoding) throws IOException, SQLException {
+        exportTable(connection, fileName, tableReference, encoding, false);
+    }
+
+    /**
+     * Read a table and write it into a shape file.
+     * @param connection Active connection
+     * @param fileName Shape file name
+     * @param tableReference Table name
+     * @param encoding File encoding
+     * @param spatialIndex If true, write a quadtree index (.qix) file
+     * @throws IOException
+     * @throws SQLException
+     */
+    public static void exportTable(Connection connection, String fileName, String tableReference,String encoding,
+                                   boolean spatialIndex) throws IOException, SQLException {
         SHPDriverFunction shpDriverFunction = new SHPDriverFunction();
+        shpDriverFunction.setWriteSpatialIndex(spatialIndex);
         shpDriverFunction.exportTable(connection, tableReference, new File(fileName), new EmptyProgressVisitor(), encoding);
     }
 }
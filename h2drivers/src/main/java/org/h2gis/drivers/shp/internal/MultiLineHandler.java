@@ -70,6 +70,11 @@ public class MultiLineHandler implements ShapeHandler {
 
 	GeometryFactory geometryFactory = new GeometryFactory();
 
+	// Reused between records, x y ordinates then z ordinates
+	private double[] xyBuffer = new double[0];
+
+	private double[] zBuffer = new double[0];
+
 	/** Create a MultiLineHandler for ShapeType.ARC */
 	public MultiLineHandler() {
 		shapeType = ShapeType.ARC;
@@ -150,12 +155,26 @@ public class MultiLineHandler implements ShapeHandler {
 		for (int i = 0; i < numParts; i++) {
 			partOffsets[i] = buffer.getInt();
 		}
-		// read the first two coordinates and start building the coordinate
-		// sequences
-		PackedCoordinateSequence[] lines = new PackedCoordinateSequence[numParts];
-		int finish, start = 0;
-		int length = 0;
-		boolean clonePoint = false;
+		// Read all x y ordinates at once
+		if (xyBuffer.length < numPoints * 2) {
+			xyBuffer = new double[numPoints * 2];
+		}
+		buffer.getDoubles(xyBuffer, 0, numPoints * 2);
+
+		// if we have another coordinate, read it too
+		if (dimensions == 3) {
+			// z min, max
+			buffer.skip(2 * 8);
+			if (zBuffer.length < numPoints) {
+				zBuffer = new double[numPoints];
+			}
+			buffer.getDoubles(zBuffer, 0, numPoints);
+		}
+
+		// Build one packed coordinate sequence by part
+		LineString[] lineStrings = new LineString[numParts];
+		int finish, start;
+		int length;
 		for (int part = 0; part < numParts; part++) {
 			start = partOffsets[part];
 
@@ -166,69 +185,22 @@ public class MultiLineHandler implements ShapeHandler {
 			}
 
 			length = finish - start;
-			if (length == 1) {
-				length = 2;
-				clonePoint = true;
-			} else {
-				clonePoint = false;
-			}
+			// A line string with a single point is not valid, the point is cloned
+			boolean clonePoint = length == 1;
 
-			// TODO With next version of JTS uncomment this line
-			// PackedCoordinateSequence builder = new
-			// PackedCoordinateSequence.Double(
-			// length, dimension);
-			PackedCoordinateSequence builder = new PackedCoordinateSequence.Double(
-					length, 3);
+			// TODO With next version of JTS use the file dimension instead of 3
+			double[] ordinates = new double[(clonePoint ? 2 : length) * 3];
 			for (int i = 0; i < length; i++) {
-				builder.setOrdinate(i, 0, buffer.getDouble());
-				builder.setOrdinate(i, 1, buffer.getDouble());
-				// TODO With next version of JTS remove this line
-				builder.setOrdinate(i, 2, Double.NaN);
+				ordinates[i * 3] = xyBuffer[(start + i) * 2];
+				ordinates[i * 3 + 1] = xyBuffer[(start + i) * 2 + 1];
+				ordinates[i * 3 + 2] = dimensions == 3 ? zBuffer[start + i] : Double.NaN;
 			}
 
 			if (clonePoint) {
-				builder.setOrdinate(1, 0, builder.getOrdinate(0, 0));
-				builder.setOrdinate(1, 1, builder.getOrdinate(1, 0));
-				// TODO With next version of JTS remove this line
-				builder.setOrdinate(1, 2, Double.NaN);
+				System.arraycopy(ordinates, 0, ordinates, 3, 3);
 			}
 
-			lines[part] = builder;
-		}
-
-		// if we have another coordinate, read and add to the coordinate
-		// sequences
-		if (dimensions == 3) {
-			// z min, max
-			buffer.skip(2 * 8);
-			for (int part = 0; part < numParts; part++) {
-				start = partOffsets[part];
-
-				if (part == (numParts - 1)) {
-					finish = numPoints;
-				} else {
-					finish = partOffsets[part + 1];
-				}
-
-				length = finish - start;
-				if (length == 1) {
-					length = 2;
-					clonePoint = true;
-				} else {
-					clonePoint = false;
-				}
-
-				for (int i = 0; i < length; i++) {
-					lines[part].setOrdinate(i, 2, buffer.getDouble());
-				}
-
-			}
-		}
-
-		// Prepare line strings and return the multilinestring
-		LineString[] lineStrings = new LineString[numParts];
-		for (int part = 0; part < numParts; part++) {
-			lineStrings[part] = geometryFactory.createLineString(lines[part]);
+			lineStrings[part] = geometryFactory.createLineString(new PackedCoordinateSequence.Double(ordinates, 3));
 		}
 
 		return geometryFactory.createMultiLineString(lineStrings);
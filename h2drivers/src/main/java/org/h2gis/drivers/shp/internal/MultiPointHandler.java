@@ -45,6 +45,8 @@ import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
 import org.h2gis.drivers.utility.CoordinatesUtils;
 import org.h2gis.drivers.utility.ReadBufferManager;
 import org.h2gis.drivers.utility.WriteBufferManager;
@@ -62,6 +64,9 @@ public class MultiPointHandler implements ShapeHandler {
 
         final ShapeType shapeType;
         GeometryFactory geometryFactory = new GeometryFactory();
+        // Reused between records, x y ordinates then z ordinates
+        private double[] xyBuffer = new double[0];
+        private double[] zBuffer = new double[0];
 
         /** Creates new MultiPointHandler */
         public MultiPointHandler() {
@@ -123,23 +128,28 @@ public class MultiPointHandler implements ShapeHandler {
                 buffer.skip(4 * 8);
 
                 int numpoints = buffer.getInt();
-                Coordinate[] coords = new Coordinate[numpoints];
-
-                for (int t = 0; t < numpoints; t++) {
-                        double x = buffer.getDouble();
-                        double y = buffer.getDouble();
-                        coords[t] = new Coordinate(x, y);
+                if (xyBuffer.length < numpoints * 2) {
+                        xyBuffer = new double[numpoints * 2];
                 }
+                buffer.getDoubles(xyBuffer, 0, numpoints * 2);
 
-                if (shapeType == ShapeType.MULTIPOINTZ) {
+                boolean hasZ = shapeType == ShapeType.MULTIPOINTZ;
+                if (hasZ) {
                         buffer.skip(2 * 8);
-
-                        for (int t = 0; t < numpoints; t++) {
-                                coords[t].z = buffer.getDouble(); //z
+                        if (zBuffer.length < numpoints) {
+                                zBuffer = new double[numpoints];
                         }
+                        buffer.getDoubles(zBuffer, 0, numpoints);
+                }
+
+                Point[] points = new Point[numpoints];
+                for (int t = 0; t < numpoints; t++) {
+                        double[] ordinates = new double[] {xyBuffer[t * 2], xyBuffer[t * 2 + 1],
+                                hasZ ? zBuffer[t] : Double.NaN};
+                        points[t] = geometryFactory.createPoint(new PackedCoordinateSequence.Double(ordinates, 3));
                 }
 
-                return geometryFactory.createMultiPoint(coords);
+                return geometryFactory.createMultiPoint(points);
         }
 
         @Override
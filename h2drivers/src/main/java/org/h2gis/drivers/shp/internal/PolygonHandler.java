@@ -50,12 +50,15 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import com.vividsolutions.jts.index.strtree.STRtree;
 import org.h2gis.drivers.utility.CoordinatesUtils;
 import org.h2gis.drivers.utility.ReadBufferManager;
 import org.h2gis.drivers.utility.WriteBufferManager;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -67,9 +70,14 @@ import java.util.List;
  * @version $Id: PolygonHandler.java 22264 2006-10-19 10:10:35Z acuster $
  */
 public class PolygonHandler implements ShapeHandler {
+        /** Below this number of shells, holes are tested against every shell */
+        private static final int MIN_INDEXED_SHELLS = 16;
 
         GeometryFactory geometryFactory = new GeometryFactory();
         final ShapeType shapeType;
+        // Reused between records, x y ordinates then z ordinates
+        private double[] xyBuffer = new double[0];
+        private double[] zBuffer = new double[0];
 
         public PolygonHandler() {
                 shapeType = ShapeType.POLYGON;
@@ -148,19 +156,21 @@ public class PolygonHandler implements ShapeHandler {
 
                 List<LinearRing> shells = new ArrayList<LinearRing>(numParts);
                 List<LinearRing> holes = new ArrayList<LinearRing>(numParts);
-                CoordinateSequence coords = readCoordinates(buffer, numPoints,
-                        dimensions);
+                // Read all x y ordinates at once
+                if (xyBuffer.length < numPoints * 2) {
+                        xyBuffer = new double[numPoints * 2];
+                }
+                buffer.getDoubles(xyBuffer, 0, numPoints * 2);
 
-                if (shapeType == ShapeType.POLYGONZ) {
+                if (dimensions == 3) {
                         // z
                         buffer.skip(2 * 8);
-
-                        for (int t = 0; t < numPoints; t++) {
-                                coords.setOrdinate(t, 2, buffer.getDouble());
+                        if (zBuffer.length < numPoints) {
+                                zBuffer = new double[numPoints];
                         }
+                        buffer.getDoubles(zBuffer, 0, numPoints);
                 }
 
-                int offset = 0;
                 int start;
                 int finish;
                 int length;
@@ -174,35 +184,33 @@ public class PolygonHandler implements ShapeHandler {
                                 finish = partOffsets[part + 1];
                         }
                         length = finish - start;
+                        if (length <= 0) {
+                                continue;
+                        }
 
+                        int last = finish - 1;
                         int ringLength;
                         // If the polygon is closed (first vertices equal to the last one)
-                        if(coords.getCoordinate(offset).equals(coords.getCoordinate(offset+length-1))) {
+                        if (xyBuffer[start * 2] == xyBuffer[last * 2]
+                                && xyBuffer[start * 2 + 1] == xyBuffer[last * 2 + 1]) {
                             ringLength = length;
                         } else {
                             // The polygon is open, need to add an additional coordinate
                             ringLength = length + 1;
                         }
 
-                        CoordinateSequence csRing = geometryFactory.getCoordinateSequenceFactory().create(ringLength, 3);
-                        // double area = 0;
-                        // int sx = offset;
+                        // Packed x y z ordinates of the ring
+                        double[] ordinates = new double[ringLength * 3];
                         for (int i = 0; i < length; i++) {
-                                csRing.setOrdinate(i, 0, coords.getOrdinate(offset, 0));
-                                csRing.setOrdinate(i, 1, coords.getOrdinate(offset, 1));
-                                if (dimensions == 3) {
-                                        csRing.setOrdinate(i, 2, coords.getOrdinate(offset, 2));
-                                }
-                                offset++;
+                                ordinates[i * 3] = xyBuffer[(start + i) * 2];
+                                ordinates[i * 3 + 1] = xyBuffer[(start + i) * 2 + 1];
+                                ordinates[i * 3 + 2] = dimensions == 3 ? zBuffer[start + i] : Double.NaN;
                         }
                         // Close the ring if necessary
-                        if(ringLength>length) {
-                            csRing.setOrdinate(length, 0, csRing.getOrdinate(0, 0));
-                            csRing.setOrdinate(length, 1, csRing.getOrdinate(0, 1));
-                            if (dimensions == 3) {
-                                csRing.setOrdinate(length, 2, csRing.getOrdinate(0, 2));
-                            }
+                        if (ringLength > length) {
+                                System.arraycopy(ordinates, 0, ordinates, length * 3, 3);
                         }
+                        CoordinateSequence csRing = new PackedCoordinateSequence.Double(ordinates, 3);
                         // REVISIT: polygons with only 1 or 2 points are not polygons -
                         // geometryFactory will bomb so we skip if we find one.
                         if (csRing.size() == 0 || csRing.size() > 3) {
@@ -342,23 +350,6 @@ public class PolygonHandler implements ShapeHandler {
                 return RobustDeterminant.signOfDet2x2(dx1, dy1, dx2, dy2);
         }
 
-        /**
-         * @param buffer
-         * @param numPoints
-         * @throws java.io.IOException
-         */
-        private CoordinateSequence readCoordinates(final ReadBufferManager buffer,
-                final int numPoints, final int dimensions) throws IOException {
-                CoordinateSequence cs = geometryFactory.getCoordinateSequenceFactory().create(numPoints, dimensions);
-
-                for (int t = 0; t < numPoints; t++) {
-                        cs.setOrdinate(t, 0, buffer.getDouble());
-                        cs.setOrdinate(t, 1, buffer.getDouble());
-                }
-
-                return cs;
-        }
-
         /**
          * @param shells
          * @param holes
@@ -413,54 +404,85 @@ public class PolygonHandler implements ShapeHandler {
                         holesForShells.add(new ArrayList<LinearRing>());
                 }
 
+                // Index shell envelopes, point in ring tests are done only on envelope hits
+                final int indexedShellCount = shells.size();
+                STRtree shellIndex = null;
+                if (indexedShellCount >= MIN_INDEXED_SHELLS) {
+                        shellIndex = new STRtree();
+                        for (int j = 0; j < indexedShellCount; j++) {
+                                shellIndex.insert(shells.get(j).getEnvelopeInternal(), j);
+                        }
+                }
+
                 // find homes
                 for (int i = 0; i < holes.size(); i++) {
                         LinearRing testRing = holes.get(i);
-                        LinearRing minShell = null;
-                        Envelope minEnv = null;
                         Envelope testEnv = testRing.getEnvelopeInternal();
                         Coordinate testPt = testRing.getCoordinateN(0);
-                        LinearRing tryRing;
+                        int minShell = -1;
 
-                        for (int j = 0; j < shells.size(); j++) {
-                                tryRing = shells.get(j);
-
-                                Envelope tryEnv = tryRing.getEnvelopeInternal();
-                                if (minShell != null) {
-                                        minEnv = minShell.getEnvelopeInternal();
+                        if (shellIndex != null) {
+                                List candidates = shellIndex.query(testEnv);
+                                int[] candidateIds = new int[candidates.size()];
+                                for (int k = 0; k < candidateIds.length; k++) {
+                                        candidateIds[k] = (Integer) candidates.get(k);
                                 }
-
-                                boolean isContained = false;
-                                Coordinate[] coordList = tryRing.getCoordinates();
-
-                                if (tryEnv.contains(testEnv)
-                                        && (CGAlgorithms.isPointInRing(testPt, coordList) || (CoordinatesUtils.contains(
-                                        coordList, testPt)))) {
-                                        isContained = true;
+                                // Keep the shell order of the file
+                                Arrays.sort(candidateIds);
+                                for (int j : candidateIds) {
+                                        minShell = findSmallestShell(shells, j, minShell, testEnv, testPt);
                                 }
-
-                                // check if this new containing ring is smaller than the current
-                                // minimum ring
-                                if (isContained && ((minShell == null) || minEnv.contains(tryEnv))) {
-                                        minShell = tryRing;
+                        } else {
+                                for (int j = 0; j < indexedShellCount; j++) {
+                                        minShell = findSmallestShell(shells, j, minShell, testEnv, testPt);
                                 }
                         }
+                        // Bad holes turned into shells are not indexed
+                        for (int j = indexedShellCount; j < shells.size(); j++) {
+                                minShell = findSmallestShell(shells, j, minShell, testEnv, testPt);
+                        }
 
-                        if (minShell == null) {
+                        if (minShell == -1) {
                                 // Logger.getLogger("org.geotools.data.shapefile").warning(
                                 // "polygon found with a hole thats not inside a shell");
                                 // now reverse this bad "hole" and turn it into a shell
                                 shells.add((LinearRing) testRing.reverse());
                                 holesForShells.add(new ArrayList<LinearRing>());
                         } else {
-                                (holesForShells.get(shells.indexOf(minShell))).add(testRing);
-
+                                holesForShells.get(minShell).add(testRing);
                         }
                 }
 
                 return holesForShells;
         }
 
+        /**
+         * @param shells Shells of the record
+         * @param tryShell Index of the shell to test
+         * @param minShell Index of the smallest containing shell found so far, -1 if none
+         * @param testEnv Hole envelope
+         * @param testPt First hole coordinate
+         * @return The index of the smallest shell that contains the hole, -1 if none
+         */
+        private static int findSmallestShell(List<LinearRing> shells, int tryShell, int minShell,
+                                             Envelope testEnv, Coordinate testPt) {
+                LinearRing tryRing = shells.get(tryShell);
+                Envelope tryEnv = tryRing.getEnvelopeInternal();
+                if (!tryEnv.contains(testEnv)) {
+                        return minShell;
+                }
+                // check if this new containing ring is smaller than the current
+                // minimum ring
+                if (minShell != -1 && !shells.get(minShell).getEnvelopeInternal().contains(tryEnv)) {
+                        return minShell;
+                }
+                Coordinate[] coordList = tryRing.getCoordinates();
+                if (CGAlgorithms.isPointInRing(testPt, coordList) || CoordinatesUtils.contains(coordList, testPt)) {
+                        return tryShell;
+                }
+                return minShell;
+        }
+
         private MultiPolygon createMulti(LinearRing single) {
                 return createMulti(single, new ArrayList<LinearRing>(0));
         }
@@ -0,0 +1,309 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.shp.internal;
+
+import com.vividsolutions.jts.geom.Envelope;
+import org.h2gis.drivers.utility.ReadBufferManager;
+import org.h2gis.drivers.utility.WriteBufferManager;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Quadtree spatial index sidecar file (.qix), as written by MapServer shptree and GeoTools.
+ * The file contains a header followed by the nodes in depth first order. Each node is stored as the byte size of
+ * its children, its bounds (minX, minY, maxX, maxY), the shape count, the 0-based shape index and the number of
+ * children.
+ * @author Nicolas Fortin
+ */
+public class QuadTreeIndexFile {
+    private static final byte[] SIGNATURE = new byte[] {'S', 'Q', 'T'};
+    private static final byte LSB_ORDER = 1;
+    private static final byte MSB_ORDER = 2;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    /** Node size in bytes without shape index */
+    private static final int NODE_SIZE = 4 + 4 * 8 + 4 + 4;
+    /** Overlap of the node quadrants, same as MapServer */
+    private static final double SPLIT_RATIO = 0.55;
+    private FileChannel channel;
+    private ReadBufferManager buffer;
+    private int shapeCount;
+    private int maxDepth;
+
+    /**
+     * Load the index file from the given channel.
+     * @param channel The channel to read from.
+     * @param readMode File access mode
+     * @throws IOException If an error occurs or if the file is not a quadtree index file.
+     */
+    public QuadTreeIndexFile(FileChannel channel, ReadBufferManager.ReadMode readMode) throws IOException {
+        this.channel = channel;
+        this.buffer = new ReadBufferManager(channel, 1024 * 32, readMode);
+        if (buffer.getLength() < HEADER_SIZE) {
+            throw new IOException("Premature end of quadtree index header");
+        }
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (buffer.getByte(i) != SIGNATURE[i]) {
+                throw new IOException("Unsupported quadtree index file, signature not found");
+            }
+        }
+        byte order = buffer.getByte(3);
+        if (order == LSB_ORDER) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (order == MSB_ORDER) {
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            buffer.order(ByteOrder.nativeOrder());
+        }
+        if (buffer.getByte(4) != VERSION) {
+            throw new IOException("Unsupported quadtree index version " + buffer.getByte(4));
+        }
+        shapeCount = buffer.getInt(8);
+        maxDepth = buffer.getInt(12);
+    }
+
+    /**
+     * @return Number of shapes of the indexed shape file
+     */
+    public int getShapeCount() {
+        return shapeCount;
+    }
+
+    /**
+     * @return Maximum depth of the tree
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param envelope Query envelope
+     * @return Sorted 0-based index of the shapes stored in the nodes that intersect the envelope
+     * @throws IOException If an error occurs.
+     */
+    public int[] query(Envelope envelope) throws IOException {
+        IntArray result = new IntArray();
+        buffer.position(HEADER_SIZE);
+        queryNode(envelope, result);
+        int[] ids = Arrays.copyOf(result.values, result.size);
+        Arrays.sort(ids);
+        // A shape is stored in only one node but the file may come from another tool
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[count++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void queryNode(Envelope envelope, IntArray result) throws IOException {
+        int offset = buffer.getInt();
+        double minX = buffer.getDouble();
+        double minY = buffer.getDouble();
+        double maxX = buffer.getDouble();
+        double maxY = buffer.getDouble();
+        int nodeShapeCount = buffer.getInt();
+        if (!envelope.intersects(new Envelope(minX, maxX, minY, maxY))) {
+            // Skip shapes, children count and children
+            buffer.skip(4 * nodeShapeCount + 4 + offset);
+            return;
+        }
+        for (int i = 0; i < nodeShapeCount; i++) {
+            result.add(buffer.getInt());
+        }
+        int childCount = buffer.getInt();
+        for (int i = 0; i < childCount; i++) {
+            queryNode(envelope, result);
+        }
+    }
+
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.close();
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    /**
+     * Build the quadtree of the shapes and write it in the given channel.
+     * @param channel Destination channel
+     * @param bounds minX, minY, maxX, maxY of each shape, NaN for null shapes
+     * @param shapeCount Number of shapes
+     * @throws IOException If an error occurs.
+     */
+    public static void write(FileChannel channel, double[] bounds, int shapeCount) throws IOException {
+        Envelope extent = new Envelope();
+        for (int i = 0; i < shapeCount; i++) {
+            if (!Double.isNaN(bounds[i * 4])) {
+                extent.expandToInclude(bounds[i * 4], bounds[i * 4 + 1]);
+                extent.expandToInclude(bounds[i * 4 + 2], bounds[i * 4 + 3]);
+            }
+        }
+        if (extent.isNull()) {
+            extent = new Envelope(0, 0, 0, 0);
+        }
+        // Same default depth as MapServer
+        int maxDepth = 0;
+        int nodeCount = 1;
+        while (nodeCount * 4 < shapeCount) {
+            maxDepth++;
+            nodeCount *= 2;
+        }
+        Node root = new Node(extent.getMinX(), extent.getMinY(), extent.getMaxX(), extent.getMaxY());
+        for (int i = 0; i < shapeCount; i++) {
+            if (!Double.isNaN(bounds[i * 4])) {
+                root.addShape(i, bounds[i * 4], bounds[i * 4 + 1], bounds[i * 4 + 2], bounds[i * 4 + 3], maxDepth);
+            }
+        }
+        root.trim();
+        WriteBufferManager out = new WriteBufferManager(channel);
+        out.put(SIGNATURE);
+        out.put(LSB_ORDER);
+        out.put(VERSION);
+        out.put(new byte[3]);
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(shapeCount);
+        out.putInt(maxDepth);
+        root.write(out);
+        out.flush();
+    }
+
+    /**
+     * Growable int array
+     */
+    private static class IntArray {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Quadtree node used when building the index
+     */
+    private static class Node {
+        private final double minX, minY, maxX, maxY;
+        private IntArray shapes = new IntArray();
+        private Node[] children = new Node[0];
+        private int childrenSize;
+
+        private Node(double minX, double minY, double maxX, double maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        private boolean contains(double sMinX, double sMinY, double sMaxX, double sMaxY) {
+            return sMinX >= minX && sMaxX <= maxX && sMinY >= minY && sMaxY <= maxY;
+        }
+
+        /**
+         * @return Two overlapping halves of this node, split on the longest side
+         */
+        private static Node[] split(Node node) {
+            if (node.maxX - node.minX > node.maxY - node.minY) {
+                double range = node.maxX - node.minX;
+                return new Node[] {new Node(node.minX, node.minY, node.minX + range * SPLIT_RATIO, node.maxY),
+                        new Node(node.maxX - range * SPLIT_RATIO, node.minY, node.maxX, node.maxY)};
+            } else {
+                double range = node.maxY - node.minY;
+                return new Node[] {new Node(node.minX, node.minY, node.maxX, node.minY + range * SPLIT_RATIO),
+                        new Node(node.minX, node.maxY - range * SPLIT_RATIO, node.maxX, node.maxY)};
+            }
+        }
+
+        /**
+         * Store the shape in the deepest node that contains its bounds
+         */
+        private void addShape(int id, double sMinX, double sMinY, double sMaxX, double sMaxY, int depth) {
+            if (depth > 1 && children.length == 0) {
+                Node[] halves = split(this);
+                Node[] first = split(halves[0]);
+                Node[] second = split(halves[1]);
+                Node[] quadrants = new Node[] {first[0], first[1], second[0], second[1]};
+                for (Node quadrant : quadrants) {
+                    if (quadrant.contains(sMinX, sMinY, sMaxX, sMaxY)) {
+                        children = quadrants;
+                        break;
+                    }
+                }
+            }
+            if (depth > 1) {
+                for (Node child : children) {
+                    if (child.contains(sMinX, sMinY, sMaxX, sMaxY)) {
+                        child.addShape(id, sMinX, sMinY, sMaxX, sMaxY, depth - 1);
+                        return;
+                    }
+                }
+            }
+            shapes.add(id);
+        }
+
+        /**
+         * Remove empty children and compute the byte size of the remaining children
+         * @return True if this node and its children do not contain any shape
+         */
+        private boolean trim() {
+            int kept = 0;
+            childrenSize = 0;
+            for (Node child : children) {
+                if (!child.trim()) {
+                    children[kept++] = child;
+                    childrenSize += NODE_SIZE + 4 * child.shapes.size + child.childrenSize;
+                }
+            }
+            children = Arrays.copyOf(children, kept);
+            return kept == 0 && shapes.size == 0;
+        }
+
+        private void write(WriteBufferManager out) throws IOException {
+            out.putInt(childrenSize);
+            out.putDouble(minX);
+            out.putDouble(minY);
+            out.putDouble(maxX);
+            out.putDouble(maxY);
+            out.putInt(shapes.size);
+            for (int i = 0; i < shapes.size; i++) {
+                out.putInt(shapes.values[i]);
+            }
+            out.putInt(children.length);
+            for (Node child : children) {
+                child.write(out);
+            }
+        }
+    }
+}
@@ -25,15 +25,21 @@
 
 package org.h2gis.drivers.shp.internal;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
-import org.h2gis.drivers.FileDriver;
+import org.h2gis.drivers.FilterFileDriver;
+import org.h2gis.drivers.SpatialFileDriver;
 import org.h2gis.drivers.dbf.internal.DBFDriver;
 import org.h2gis.drivers.dbf.internal.DbaseFileHeader;
+import org.h2gis.drivers.utility.ReadBufferManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Merge ShapeFileReader and DBFReader.
@@ -48,15 +54,26 @@ import java.io.IOException;
  *
  * @author Nicolas Fortin
  */
-public class SHPDriver implements FileDriver {
+public class SHPDriver implements SpatialFileDriver, FilterFileDriver {
     private DBFDriver dbfDriver = new DBFDriver();
     private File shpFile;
     private File shxFile;
+    private File qixFile;
+    private static final Logger LOG = LoggerFactory.getLogger(SHPDriver.class);
     private ShapefileReader shapefileReader;
     private ShapefileWriter shapefileWriter;
     private IndexFile shxFileReader;
+    private QuadTreeIndexFile qixFileReader;
+    // Bounds of written geometries, kept to build the quadtree index on close
+    private boolean writeSpatialIndex = false;
+    private double[] writtenBounds;
+    private int writtenCount = 0;
     private int geometryFieldIndex = 0;
     private ShapeType shapeType;
+    // Sequential read state, used to skip the shx lookup
+    private long lastRowId = -1;
+    private int lastRecordOffset = -1;
+    private int nextRecordOffset = -1;
 
     /**
      * @param geometryFieldIndex The geometry field index in getRow() array.
@@ -65,6 +82,22 @@ public class SHPDriver implements FileDriver {
         this.geometryFieldIndex = geometryFieldIndex;
     }
 
+    /**
+     * @param writeSpatialIndex If true, a quadtree index (.qix) file is written with the shape file. Must be set
+     *                          before {@link #initDriver(java.io.File, ShapeType, org.h2gis.drivers.dbf.internal.DbaseFileHeader)}
+     */
+    public void setWriteSpatialIndex(boolean writeSpatialIndex) {
+        this.writeSpatialIndex = writeSpatialIndex;
+    }
+
+    /**
+     * @param dictionarySize Maximum number of distinct character values shared by column, 0 to disable
+     * @see org.h2gis.drivers.dbf.internal.DbaseFileReader#setStringDictionarySize(int)
+     */
+    public void setStringDictionarySize(int dictionarySize) {
+        dbfDriver.setStringDictionarySize(dictionarySize);
+    }
+
     public void insertRow(Object[] values) throws IOException {
         if(!(values[geometryFieldIndex] instanceof Geometry)) {
             if(values[geometryFieldIndex]==null) {
@@ -74,6 +107,9 @@ public class SHPDriver implements FileDriver {
                         " found "+values[geometryFieldIndex].getClass()+" instead.");
             }
         }
+        if(writeSpatialIndex) {
+            addWrittenBounds(((Geometry) values[geometryFieldIndex]).getEnvelopeInternal());
+        }
         shapefileWriter.writeGeometry((Geometry)values[geometryFieldIndex]);
         // Extract the DBF part of the row
         Object[] dbfValues = new Object[values.length - 1];
@@ -88,9 +124,26 @@ public class SHPDriver implements FileDriver {
         dbfDriver.insertRow(dbfValues);
     }
 
+    private void addWrittenBounds(Envelope envelope) {
+        if(writtenBounds.length < (writtenCount + 1) * 4) {
+            writtenBounds = Arrays.copyOf(writtenBounds, writtenBounds.length * 2);
+        }
+        int offset = writtenCount * 4;
+        if(envelope.isNull()) {
+            Arrays.fill(writtenBounds, offset, offset + 4, Double.NaN);
+        } else {
+            writtenBounds[offset] = envelope.getMinX();
+            writtenBounds[offset + 1] = envelope.getMinY();
+            writtenBounds[offset + 2] = envelope.getMaxX();
+            writtenBounds[offset + 3] = envelope.getMaxY();
+        }
+        writtenCount++;
+    }
+
     /**
      * @return The geometry field index in getRow() array.
      */
+    @Override
     public int getGeometryFieldIndex() {
         return geometryFieldIndex;
     }
@@ -108,6 +161,14 @@ public class SHPDriver implements FileDriver {
         this.shpFile = new File(nameWithoutExt+".shp");
         this.shxFile = new File(nameWithoutExt+".shx");
         File dbfFile = new File(nameWithoutExt+".dbf");
+        qixFile = new File(nameWithoutExt+".qix");
+        if(writeSpatialIndex) {
+            writtenBounds = new double[4 * 1024];
+            writtenCount = 0;
+        } else if(qixFile.exists() && !qixFile.delete()) {
+            // The index of the replaced shape file would not match
+            throw new IOException("Could not delete "+qixFile.getAbsolutePath());
+        }
         FileOutputStream shpFos = new FileOutputStream(shpFile);
         FileOutputStream shxFos = new FileOutputStream(shxFile);
         shapefileWriter = new ShapefileWriter(shpFos.getChannel(), shxFos.getChannel());
@@ -131,7 +192,19 @@ public class SHPDriver implements FileDriver {
      * @param forceEncoding If defined use this encoding instead of the one defined in dbf header.
      * @throws IOException
      */
-    public void initDriverFromFile(File shpFile, String forceEncoding) throws IOException {             // Read columns from files metadata
+    public void initDriverFromFile(File shpFile, String forceEncoding) throws IOException {
+        initDriverFromFile(shpFile, forceEncoding, ReadBufferManager.ReadMode.AUTO);
+    }
+
+    /**
+     * Init this driver from existing files, then open theses files.
+     * @param shpFile Shape file path.
+     * @param forceEncoding If defined use this encoding instead of the one defined in dbf header.
+     * @param readMode File access mode of shp, shx and dbf files
+     * @throws IOException
+     */
+    public void initDriverFromFile(File shpFile, String forceEncoding, ReadBufferManager.ReadMode readMode) throws IOException {
+        // Read columns from files metadata
         this.shpFile = shpFile;
         File dbfFile = null;
         // Find appropriate file extension for shx and dbf, maybe SHX or Shx..
@@ -147,19 +220,46 @@ public class SHPDriver implements FileDriver {
                         shxFile = otherFile;
                     } else if(fileExt.equalsIgnoreCase("dbf")) {
                         dbfFile = otherFile;
+                    } else if(fileExt.equalsIgnoreCase("qix")) {
+                        qixFile = otherFile;
                     }
                 }
             }
         }
         if(dbfFile != null) {
-            dbfDriver.initDriverFromFile(dbfFile, forceEncoding);
+            dbfDriver.initDriverFromFile(dbfFile, forceEncoding, readMode);
         } else {
             throw new IllegalArgumentException("DBF File not found");
         }
         FileInputStream shpFis = new FileInputStream(shpFile);
-        shapefileReader = new ShapefileReader(shpFis.getChannel());
+        shapefileReader = new ShapefileReader(shpFis.getChannel(), readMode);
         FileInputStream shxFis = new FileInputStream(shxFile);
-        shxFileReader = new IndexFile(shxFis.getChannel());
+        shxFileReader = new IndexFile(shxFis.getChannel(), readMode);
+        if(qixFile != null) {
+            openSpatialIndex(readMode);
+        }
+    }
+
+    /**
+     * Open the quadtree index file, ignored if it does not match the shape file.
+     * @param readMode File access mode
+     * @throws IOException
+     */
+    private void openSpatialIndex(ReadBufferManager.ReadMode readMode) throws IOException {
+        FileInputStream qixFis = new FileInputStream(qixFile);
+        try {
+            qixFileReader = new QuadTreeIndexFile(qixFis.getChannel(), readMode);
+        } catch (IOException ex) {
+            LOG.warn("Ignore the spatial index file "+qixFile.getName(), ex);
+            qixFis.close();
+            return;
+        }
+        if(qixFileReader.getShapeCount() != getRowCount()) {
+            LOG.warn("Ignore the spatial index file "+qixFile.getName()+", the number of shapes is not the same as the" +
+                    " shape file");
+            qixFileReader.close();
+            qixFileReader = null;
+        }
     }
 
     /**
@@ -187,10 +287,22 @@ public class SHPDriver implements FileDriver {
         if(shapefileReader != null) {
             shapefileReader.close();
             shxFileReader.close();
+            if(qixFileReader != null) {
+                qixFileReader.close();
+            }
         } else if(shapefileWriter != null) {
             // Update header
             shapefileWriter.writeHeaders(shapeType);
             shapefileWriter.close();
+            if(writeSpatialIndex) {
+                FileOutputStream qixFos = new FileOutputStream(qixFile);
+                try {
+                    QuadTreeIndexFile.write(qixFos.getChannel(), writtenBounds, writtenCount);
+                } finally {
+                    qixFos.close();
+                }
+                writtenBounds = null;
+            }
         }
     }
 
@@ -208,11 +320,96 @@ public class SHPDriver implements FileDriver {
         if(geometryFieldIndex > 0) {
             System.arraycopy(dbfValues, 0, values, 0, geometryFieldIndex);
         }
-        values[geometryFieldIndex] = shapefileReader.geomAt(shxFileReader.getOffset((int)rowId));
+        values[geometryFieldIndex] = shapefileReader.geomAt(getRecordOffset(rowId));
         // Copy dbf values after geometryFieldIndex
         if(geometryFieldIndex < dbfValues.length) {
             System.arraycopy(dbfValues, geometryFieldIndex, values, geometryFieldIndex + 1, dbfValues.length);
         }
         return values;
     }
+
+    @Override
+    public Object getField(long rowId, int columnId) throws IOException {
+        if(columnId == geometryFieldIndex) {
+            return shapefileReader.geomAt(getRecordOffset(rowId));
+        } else if(columnId < geometryFieldIndex) {
+            return dbfDriver.getField(rowId, columnId);
+        } else {
+            return dbfDriver.getField(rowId, columnId - 1);
+        }
+    }
+
+    @Override
+    public Envelope getEnvelope(long rowId) throws IOException {
+        return shapefileReader.envelopeAt(getRecordOffset(rowId));
+    }
+
+    @Override
+    public boolean hasSpatialIndex() {
+        return qixFileReader != null;
+    }
+
+    @Override
+    public long[] querySpatialIndex(Envelope envelope) throws IOException {
+        if(qixFileReader == null) {
+            return null;
+        }
+        int[] shapeIds = qixFileReader.query(envelope);
+        long[] rowIds = new long[shapeIds.length];
+        for(int i = 0; i < shapeIds.length; i++) {
+            rowIds[i] = shapeIds[i];
+        }
+        return rowIds;
+    }
+
+    @Override
+    public boolean isFilterSupported(int columnId) {
+        return columnId != geometryFieldIndex && dbfDriver.isFilterSupported(getDbfColumn(columnId));
+    }
+
+    @Override
+    public RowFilter createRowFilter(int columnId, Object min, Object max) {
+        if(columnId == geometryFieldIndex) {
+            return null;
+        }
+        return dbfDriver.createRowFilter(getDbfColumn(columnId), min, max);
+    }
+
+    private int getDbfColumn(int columnId) {
+        return columnId < geometryFieldIndex ? columnId : columnId - 1;
+    }
+
+    @Override
+    public Envelope getExtent() throws IOException {
+        if(shapefileReader == null) {
+            return null;
+        }
+        ShapefileHeader header = shapefileReader.getHeader();
+        return new Envelope(header.minX(), header.maxX(), header.minY(), header.maxY());
+    }
+
+    /**
+     * When rows are read in sequence the shp file is read front to back, the offset of the next record is computed
+     * from the current record header instead of reading the shx file.
+     * @param rowId Row index [0-getRowCount()[
+     * @return Record offset in the shp file, in bytes
+     * @throws IOException
+     */
+    private int getRecordOffset(long rowId) throws IOException {
+        if(rowId == lastRowId) {
+            return lastRecordOffset;
+        }
+        int offset;
+        if(rowId == lastRowId + 1 && nextRecordOffset > 0 &&
+                nextRecordOffset + 8 <= shapefileReader.getHeader().getFileLength() * 2L &&
+                shapefileReader.getRecordNumber(nextRecordOffset) == rowId + 1) {
+            offset = nextRecordOffset;
+        } else {
+            offset = shxFileReader.getOffset((int)rowId);
+        }
+        lastRowId = rowId;
+        lastRecordOffset = offset;
+        nextRecordOffset = shapefileReader.getNextRecordOffset(offset);
+        return offset;
+    }
 }
@@ -40,6 +40,7 @@
  */
 package org.h2gis.drivers.shp.internal;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import org.h2gis.drivers.utility.ReadBufferManager;
 
@@ -75,6 +76,7 @@ public class ShapefileReader {
         private FileChannel channel;
         private ReadBufferManager buffer;
         private ShapeType fileShapeType = ShapeType.UNDEFINED;
+        private ReadBufferManager.ReadMode readMode;
 
         /**
          * Creates a new instance of ShapeFile.
@@ -87,8 +89,26 @@ public class ShapefileReader {
          *             If for some reason the file contains invalid records.
          */
         public ShapefileReader(FileChannel channel) throws IOException,
+                ShapefileException {
+                this(channel, ReadBufferManager.ReadMode.AUTO);
+        }
+
+        /**
+         * Creates a new instance of ShapeFile.
+         *
+         * @param channel
+         *            The ReadableByteChannel this reader will use.
+         * @param readMode
+         *            File access mode
+         * @throws java.io.IOException
+         *             If problems arise.
+         * @throws ShapefileException
+         *             If for some reason the file contains invalid records.
+         */
+        public ShapefileReader(FileChannel channel, ReadBufferManager.ReadMode readMode) throws IOException,
                 ShapefileException {
                 this.channel = channel;
+                this.readMode = readMode;
                 init();
         }
 
@@ -124,7 +144,7 @@ public class ShapefileReader {
                 if (handler == null) {
                         throw new IOException("Unsuported shape type:" + fileShapeType);
                 }
-                buffer = new ReadBufferManager(channel);
+                buffer = new ReadBufferManager(channel, 1024 * 32, readMode);
         }
 
         /**
@@ -183,6 +203,56 @@ public class ShapefileReader {
                 return handler.read(buffer, recordType);
         }
 
+        /**
+         * @param offset Record offset in bytes
+         * @return The record number stored in the record header, starting from 1
+         * @throws java.io.IOException
+         */
+        public int getRecordNumber(int offset) throws IOException {
+                buffer.order(ByteOrder.BIG_ENDIAN);
+                return buffer.getInt(offset);
+        }
+
+        /**
+         * @param offset Record offset in bytes
+         * @return The offset of the record that follows this one, if any.
+         * @throws java.io.IOException
+         */
+        public int getNextRecordOffset(int offset) throws IOException {
+                buffer.order(ByteOrder.BIG_ENDIAN);
+                // Content length is in 16-bit words, without the record header
+                return offset + 8 + 2 * buffer.getInt(offset + 4);
+        }
+
+        /**
+         * Read the bounding box stored in the record content, the geometry is not decoded.
+         *
+         * @param offset Record offset in bytes
+         * @throws java.io.IOException
+         * @return The record envelope or null if the record is a null shape.
+         */
+        public Envelope envelopeAt(int offset) throws IOException {
+                buffer.position(offset);
+                // record header
+                buffer.skip(8);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                ShapeType recordType = ShapeType.forID(buffer.getInt());
+                if (recordType == ShapeType.NULL) {
+                        return null;
+                }
+                if (recordType.isPointType()) {
+                        // Point records do not have a bounding box
+                        double x = buffer.getDouble();
+                        double y = buffer.getDouble();
+                        return new Envelope(x, x, y, y);
+                }
+                double minX = buffer.getDouble();
+                double minY = buffer.getDouble();
+                double maxX = buffer.getDouble();
+                double maxY = buffer.getDouble();
+                return new Envelope(minX, maxX, minY, maxY);
+        }
+
         /**
          * @param handler
          *            The handler to set.
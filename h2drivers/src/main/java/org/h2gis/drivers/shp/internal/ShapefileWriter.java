@@ -164,7 +164,8 @@ public class ShapefileWriter {
                 bounds.expandToInclude(g.getEnvelopeInternal());
             }
         } else {
-            bounds = g.getEnvelopeInternal();
+            // Copy, the geometry envelope must not be expanded
+            bounds = new Envelope(g.getEnvelopeInternal());
         }
 		int length;
 		if (g == null) {
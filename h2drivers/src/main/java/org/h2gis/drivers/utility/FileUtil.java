@@ -0,0 +1,224 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Open file streams, files with the gz extension are compressed or decompressed on the fly.
+ * ex: "data.geojson.gz" is a gzip compressed geojson file.
+ * @author Nicolas Fortin
+ */
+public class FileUtil {
+    /** Extension of gzip compressed files */
+    public static final String GZIP_EXTENSION = "gz";
+    /** Extension of zip archives */
+    public static final String ZIP_EXTENSION = "zip";
+    /** Size of stream buffers, compressed streams are read by large blocks */
+    public static final int BUFFER_SIZE = 256 * 1024;
+
+    private FileUtil() {
+    }
+
+    /**
+     * @param file File path
+     * @return True if the file name ends with the gz extension
+     */
+    public static boolean isGzip(File file) {
+        return GZIP_EXTENSION.equalsIgnoreCase(getLastExtension(file.getName()));
+    }
+
+    /**
+     * @param file File path
+     * @return True if the file name ends with the zip extension
+     */
+    public static boolean isZip(File file) {
+        return ZIP_EXTENSION.equalsIgnoreCase(getLastExtension(file.getName()));
+    }
+
+    /**
+     * @param file File path
+     * @return File extension without the gz extension, ex: "geojson" for "data.geojson.gz". Empty if the file
+     * does not have an extension.
+     */
+    public static String getExtension(File file) {
+        return getLastExtension(getNameWithoutGzip(file));
+    }
+
+    /**
+     * @param file File path
+     * @return File name without the gz extension and without the format extension, ex: "data" for "data.gpx.gz"
+     */
+    public static String getBaseName(File file) {
+        String name = getNameWithoutGzip(file);
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String getNameWithoutGzip(File file) {
+        String name = file.getName();
+        if(isGzip(file)) {
+            name = name.substring(0, name.length() - GZIP_EXTENSION.length() - 1);
+        }
+        return name;
+    }
+
+    private static String getLastExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot + 1) : "";
+    }
+
+    /**
+     * Open a buffered input stream, the content of gz files is decompressed.
+     * @param file File to read
+     * @return Opened stream, the caller must close it
+     * @throws IOException
+     */
+    public static InputStream openInputStream(File file) throws IOException {
+        InputStream fis = new FileInputStream(file);
+        try {
+            if(isGzip(file)) {
+                return new BufferedInputStream(new GZIPInputStream(fis, BUFFER_SIZE), BUFFER_SIZE);
+            } else {
+                return new BufferedInputStream(fis, BUFFER_SIZE);
+            }
+        } catch (IOException ex) {
+            // Not a gzip file
+            fis.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Open a buffered output stream, the content of gz files is compressed.
+     * @param file File to write, replaced if it exists
+     * @return Opened stream, the caller must close it
+     * @throws IOException
+     */
+    public static OutputStream openOutputStream(File file) throws IOException {
+        OutputStream fos = new FileOutputStream(file);
+        try {
+            if(isGzip(file)) {
+                return new BufferedOutputStream(new GZIPOutputStream(fos, BUFFER_SIZE), BUFFER_SIZE);
+            } else {
+                return new BufferedOutputStream(fos, BUFFER_SIZE);
+            }
+        } catch (IOException ex) {
+            fos.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Copy the entries of a zip archive in a directory. The archive is read once, only the entries with one of
+     * the given extensions are written, the directory structure of the archive is not kept.
+     * @param zipFile Zip archive
+     * @param directory Destination directory
+     * @param extensions Extensions of the entries to extract, case insensitive
+     * @return Extracted files, in the archive order
+     * @throws IOException
+     */
+    public static List<File> extractZipEntries(File zipFile, File directory, String... extensions) throws IOException {
+        List<File> files = new ArrayList<File>();
+        ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(zipFile), BUFFER_SIZE));
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ZipEntry entry;
+            while((entry = zis.getNextEntry()) != null) {
+                if(entry.isDirectory()) {
+                    continue;
+                }
+                // Ignore the archive folders, this also prevents writing outside of the directory
+                String name = new File(entry.getName().replace('\\', '/')).getName();
+                String extension = getLastExtension(name);
+                for(String accepted : extensions) {
+                    if(accepted.equalsIgnoreCase(extension)) {
+                        File file = new File(directory, name);
+                        OutputStream out = new FileOutputStream(file);
+                        try {
+                            int read;
+                            while((read = zis.read(buffer)) > 0) {
+                                out.write(buffer, 0, read);
+                            }
+                        } finally {
+                            out.close();
+                        }
+                        files.add(file);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            zis.close();
+        }
+        return files;
+    }
+
+    /**
+     * Create a new empty directory in the temporary folder.
+     * @param prefix Directory name prefix
+     * @return Created directory
+     * @throws IOException
+     */
+    public static File createTempDirectory(String prefix) throws IOException {
+        File directory = File.createTempFile(prefix, "");
+        if(!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Could not create the temporary directory " + directory.getAbsolutePath());
+        }
+        return directory;
+    }
+
+    /**
+     * Delete a directory and the files it contains, sub directories are not deleted.
+     * @param directory Directory to delete
+     */
+    public static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                if(!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+        if(!directory.delete()) {
+            directory.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.h2gis.drivers.utility;
+
+import org.h2gis.drivers.FileDriver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Read the rows of a file using several threads, each thread owns its own {@link FileDriver} instance.
+ * Rows are split into chunks, the thread i decodes the chunks i, i + threadCount, i + 2 * threadCount..
+ * The chunks are returned in the file order by {@link #nextChunk()}.
+ *
+ * How to use:
+ * <pre>
+ * ParallelFileDriverReader reader = new ParallelFileDriverReader(factory, rowCount, threadCount, chunkSize);
+ * try {
+ *     reader.start();
+ *     Object[][] rows;
+ *     while((rows = reader.nextChunk()) != null) {
+ *         // insert rows
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * @author Nicolas Fortin
+ */
+public class ParallelFileDriverReader {
+    /** Number of decoded chunks waiting for the consumer, by thread */
+    private static final int QUEUE_CHUNKS = 4;
+    private static final Object[][] END_OF_DATA = new Object[0][];
+    private final FileDriverFactory factory;
+    private final long rowCount;
+    private final int chunkSize;
+    private final long chunkCount;
+    private final Worker[] workers;
+    private long nextChunkId = 0;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Create a new FileDriver instance on the same file, the instance is used and closed by a single thread.
+     */
+    public interface FileDriverFactory {
+        /**
+         * @return A new opened driver
+         * @throws IOException Error while opening the file
+         */
+        FileDriver create() throws IOException;
+    }
+
+    /**
+     * @param factory Driver factory, called once by thread
+     * @param rowCount Number of rows to read
+     * @param threadCount Number of decoding threads
+     * @param chunkSize Number of rows decoded at once by a thread
+     */
+    public ParallelFileDriverReader(FileDriverFactory factory, long rowCount, int threadCount, int chunkSize) {
+        this.factory = factory;
+        this.rowCount = rowCount;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkCount = (rowCount + this.chunkSize - 1) / this.chunkSize;
+        workers = new Worker[(int)Math.max(1, Math.min(threadCount, chunkCount))];
+        for(int idWorker = 0; idWorker < workers.length; idWorker++) {
+            workers[idWorker] = new Worker(idWorker);
+        }
+    }
+
+    /**
+     * @return Number of available processors
+     */
+    public static int getDefaultThreadCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Start the decoding threads
+     */
+    public void start() {
+        for(Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * @return The next rows, in the file order, or null if all rows have been read.
+     * @throws IOException Error while reading the file
+     */
+    public Object[][] nextChunk() throws IOException {
+        if(nextChunkId >= chunkCount) {
+            return null;
+        }
+        Worker worker = workers[(int)(nextChunkId % workers.length)];
+        Object[][] chunk;
+        try {
+            chunk = worker.queue.take();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("Interrupted while waiting for rows");
+        }
+        if(chunk == END_OF_DATA) {
+            throw new IOException("Error while reading the file", worker.error);
+        }
+        nextChunkId++;
+        return chunk;
+    }
+
+    /**
+     * Stop the threads and release resources.
+     */
+    public void close() {
+        cancelled = true;
+        for(Worker worker : workers) {
+            worker.interrupt();
+        }
+        for(Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private class Worker extends Thread {
+        private final int idWorker;
+        private final BlockingQueue<Object[][]> queue = new ArrayBlockingQueue<Object[][]>(QUEUE_CHUNKS);
+        private Throwable error;
+
+        private Worker(int idWorker) {
+            super("FileDriverReader-" + idWorker);
+            this.idWorker = idWorker;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                FileDriver driver = factory.create();
+                try {
+                    for(long chunkId = idWorker; chunkId < chunkCount && !cancelled; chunkId += workers.length) {
+                        long firstRow = chunkId * chunkSize;
+                        Object[][] chunk = new Object[(int)Math.min(chunkSize, rowCount - firstRow)][];
+                        for(int i = 0; i < chunk.length; i++) {
+                            chunk[i] = driver.getRow(firstRow + i);
+                        }
+                        queue.put(chunk);
+                    }
+                } finally {
+                    driver.close();
+                }
+            } catch (InterruptedException ex) {
+                // Cancelled by the consumer
+            } catch (Throwable ex) {
+                error = ex;
+                // Unblock the consumer
+                queue.clear();
+                queue.offer(END_OF_DATA);
+            }
+        }
+    }
+}
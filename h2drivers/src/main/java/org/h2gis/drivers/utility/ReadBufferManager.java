@@ -24,18 +24,64 @@
  */
 package org.h2gis.drivers.utility;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
+/**
+ * Random access reader of a file channel. The content is either copied into a heap buffer window, or read through
+ * memory mapped segments of the file.
+ */
 public final class ReadBufferManager {
 
+        /**
+         * How the file content is accessed
+         */
+        public enum ReadMode {
+                /**
+                 * Memory mapped on 64 bits systems for files larger than
+                 * {@link ReadBufferManager#AUTO_MAPPED_MIN_SIZE}
+                 */
+                AUTO,
+                /** Copy the file into a buffer window */
+                HEAP,
+                /** Map the file into memory */
+                MAPPED;
+
+                /**
+                 * @param mode Read mode name, case insensitive. Null or empty for AUTO
+                 * @return ReadMode instance
+                 * @throws IllegalArgumentException If the name is not a read mode
+                 */
+                public static ReadMode fromString(String mode) {
+                        if (mode == null || mode.trim().isEmpty()) {
+                                return AUTO;
+                        }
+                        return valueOf(mode.trim().toUpperCase());
+                }
+        }
+
+        /** Files larger than this size are memory mapped in {@link ReadMode#AUTO} mode */
+        public static final long AUTO_MAPPED_MIN_SIZE = 1024 * 1024 * 16;
+        /** A mapped buffer cannot hold more than 2GB, the file is mapped by segments of this size */
+        private static final long MAPPED_SEGMENT_SIZE = 1L << 30;
+        /** Segments overlap in order to read values located at the boundary of a segment */
+        private static final long MAPPED_SEGMENT_OVERLAP = 1024 * 1024;
+        /** Maximum size of the heap window when the file is read sequentially */
+        private static final int MAX_READ_AHEAD = 1024 * 1024;
         private int bufferSize;
+        private int readAheadSize;
         private ByteBuffer buffer;
         private FileChannel channel;
         private long windowStart;
         private long positionInFile;
+        private ByteOrder order = ByteOrder.BIG_ENDIAN;
+        private boolean mapped;
+        private MappedByteBuffer[] segments;
+        private long channelSize;
 
         /**
          * Instantiates a ReadBufferManager to read the specified channel
@@ -56,12 +102,82 @@ public final class ReadBufferManager {
          * @throws java.io.IOException
          */
         public ReadBufferManager(FileChannel channel, int bufferSize)
+                throws IOException {
+                this(channel, bufferSize, ReadMode.HEAP);
+        }
+
+        /**
+         * Instantiates a ReadBufferManager to read the specified channel.
+         *
+         * @param channel
+         * @param bufferSize Size of the window in heap mode
+         * @param readMode File access mode
+         * @throws java.io.IOException
+         */
+        public ReadBufferManager(FileChannel channel, int bufferSize, ReadMode readMode)
                 throws IOException {
                 this.channel = channel;
                 buffer = ByteBuffer.allocate(0);
                 windowStart = 0;
                 this.bufferSize = bufferSize;
-                getWindowOffset(0, bufferSize);
+                this.readAheadSize = bufferSize;
+                channelSize = channel.size();
+                mapped = useMappedBuffer(readMode, channelSize);
+                if (mapped) {
+                        segments = new MappedByteBuffer[(int) ((channelSize - 1) / MAPPED_SEGMENT_SIZE) + 1];
+                } else {
+                        getWindowOffset(0, bufferSize);
+                }
+        }
+
+        private static boolean useMappedBuffer(ReadMode readMode, long size) {
+                switch (readMode) {
+                        case MAPPED:
+                                return true;
+                        case HEAP:
+                                return false;
+                        default:
+                                // Mapped files cannot be deleted on Windows until the buffer is garbage collected
+                                return size >= AUTO_MAPPED_MIN_SIZE
+                                        && "64".equals(System.getProperty("sun.arch.data.model"))
+                                        && !System.getProperty("os.name", "").startsWith("Windows");
+                }
+        }
+
+        /**
+         * @return True if the file is read through memory mapped buffers
+         */
+        public boolean isMapped() {
+                return mapped;
+        }
+
+        /**
+         * Map the segment containing the desired bytes.
+         *
+         * @param bytePos
+         * @param length
+         * @throws java.io.IOException
+         */
+        private int getMappedWindowOffset(long bytePos, int length) throws IOException {
+                if (bytePos < 0 || bytePos + length > channelSize) {
+                        throw new EOFException("Cannot read " + length + " bytes at position " + bytePos);
+                }
+                int segmentId = (int) (bytePos / MAPPED_SEGMENT_SIZE);
+                long segmentStart = segmentId * MAPPED_SEGMENT_SIZE;
+                long segmentLength = Math.min(MAPPED_SEGMENT_SIZE + MAPPED_SEGMENT_OVERLAP, channelSize - segmentStart);
+                if (bytePos + length <= segmentStart + segmentLength) {
+                        if (segments[segmentId] == null) {
+                                segments[segmentId] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentLength);
+                        }
+                        buffer = segments[segmentId];
+                        windowStart = segmentStart;
+                } else {
+                        // Very large value located on segments boundary, map it alone
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, bytePos, length);
+                        windowStart = bytePos;
+                }
+                buffer.order(order);
+                return (int) (bytePos - windowStart);
         }
 
         /**
@@ -75,15 +191,23 @@ public final class ReadBufferManager {
                 long desiredMin = bytePos;
                 long desiredMax = desiredMin + length - 1;
                 if ((desiredMin >= windowStart)
-                        && (desiredMax < windowStart + buffer.capacity())) {
+                        && (desiredMax < windowStart + buffer.limit())) {
                         long res = desiredMin - windowStart;
                         if (res < Integer.MAX_VALUE) {
                                 return (int) res;
                         } else {
                                 throw new IOException("this buffer is quite large...");
                         }
+                } else if (mapped) {
+                        return getMappedWindowOffset(bytePos, length);
                 } else {
-                        long bufferCapacity = Math.max(bufferSize, length);
+                        // Read ahead more data while the file is read front to back
+                        if (desiredMin >= windowStart && desiredMin <= windowStart + buffer.limit()) {
+                                readAheadSize = Math.min(readAheadSize * 2, Math.max(bufferSize, MAX_READ_AHEAD));
+                        } else {
+                                readAheadSize = bufferSize;
+                        }
+                        long bufferCapacity = Math.max(readAheadSize, length);
                         long size = channel.size();
 
                         bufferCapacity = Math.min(bufferCapacity, size - bytePos);
@@ -93,12 +217,12 @@ public final class ReadBufferManager {
                         windowStart = bytePos;
 
                         channel.position(windowStart);
-                        if (buffer.capacity() != bufferCapacity) {
-                                ByteOrder order = buffer.order();
+                        if (buffer.capacity() < bufferCapacity) {
                                 buffer = ByteBuffer.allocate((int)bufferCapacity);
                                 buffer.order(order);
                         } else {
                                 buffer.clear();
+                                buffer.limit((int)bufferCapacity);
                         }
                         channel.read(buffer);
                         buffer.flip();
@@ -134,6 +258,7 @@ public final class ReadBufferManager {
          * @param order
          */
         public void order(ByteOrder order) {
+                this.order = order;
                 buffer.order(order);
         }
 
@@ -267,6 +392,25 @@ public final class ReadBufferManager {
                 return ret;
         }
 
+        /**
+         * Read doubles at the current position into the provided array
+         *
+         * @param values Destination array
+         * @param offset Offset of the first double in values
+         * @param length Number of doubles to read
+         * @throws java.io.IOException
+         */
+        public void getDoubles(double[] values, int offset, int length) throws IOException {
+                if (length == 0) {
+                        return;
+                }
+                int windowOffset = getWindowOffset(positionInFile, length * 8);
+                buffer.position(windowOffset);
+                // The view has the byte order of the buffer
+                buffer.asDoubleBuffer().get(values, offset, length);
+                positionInFile += length * 8;
+        }
+
         /**
          * Gets the double value at the specified position
          *
@@ -287,7 +431,7 @@ public final class ReadBufferManager {
          */
         public boolean isEOF() throws IOException {
                 return (buffer.remaining() == 0)
-                        && (windowStart + buffer.capacity() >= channel.size());
+                        && (windowStart + buffer.limit() >= channel.size());
         }
 
         /**
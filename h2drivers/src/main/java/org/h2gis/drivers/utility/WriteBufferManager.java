@@ -31,15 +31,23 @@ import java.nio.channels.FileChannel;
 
 /**
  * Class to write files using nio.
+ * Bytes are stored in a set of direct buffers, written to the channel in a single gathering write when all the
+ * buffers are full.
  *
  * @author Fernando Gonzalez Cortes
  */
 public final class WriteBufferManager {
 
-	private static final int BUFFER_SIZE = 1024 * 128;
+	private static final int SEGMENT_SIZE = 1024 * 256;
+
+	private static final int SEGMENT_COUNT = 4;
 
 	private FileChannel channel;
 
+	private ByteBuffer[] segments;
+
+	private int currentSegment = 0;
+
 	private ByteBuffer buffer;
 
 	/**
@@ -50,8 +58,24 @@ public final class WriteBufferManager {
 	 * @throws java.io.IOException
 	 */
 	public WriteBufferManager(FileChannel channel) throws IOException {
+		this(channel, SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates a new WriteBufferManager that writes to the specified file
+	 * channel
+	 *
+	 * @param channel
+	 * @param segmentSize Size of each of the direct buffers, in bytes
+	 * @throws java.io.IOException
+	 */
+	public WriteBufferManager(FileChannel channel, int segmentSize) throws IOException {
 		this.channel = channel;
-		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		segments = new ByteBuffer[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = ByteBuffer.allocateDirect(segmentSize);
+		}
+		buffer = segments[0];
 	}
 
 	/**
@@ -66,27 +90,43 @@ public final class WriteBufferManager {
 	}
 
 	/**
-	 * Moves the window
+	 * Moves to the next buffer, buffers are written when all of them are full
 	 *
 	 * @param numBytes
 	 * @throws java.io.IOException
 	 */
 	private void prepareToAddBytes(int numBytes) throws IOException {
 		if (buffer.remaining() < numBytes) {
-			buffer.flip();
-			channel.write(buffer);
-
-			int bufferCapacity = Math.max(BUFFER_SIZE, numBytes);
-			if (bufferCapacity != buffer.capacity()) {
-				ByteOrder order = buffer.order();
-				buffer = ByteBuffer.allocate(bufferCapacity);
-				buffer.order(order);
+			if (currentSegment + 1 < segments.length) {
+				currentSegment++;
+				buffer = segments[currentSegment];
 			} else {
-				buffer.clear();
+				writeSegments();
 			}
 		}
 	}
 
+	/**
+	 * Write the content of the used buffers in the channel, then clear them
+	 *
+	 * @throws java.io.IOException
+	 */
+	private void writeSegments() throws IOException {
+		long remaining = 0;
+		for (int i = 0; i <= currentSegment; i++) {
+			segments[i].flip();
+			remaining += segments[i].remaining();
+		}
+		while (remaining > 0) {
+			remaining -= channel.write(segments, 0, currentSegment + 1);
+		}
+		for (int i = 0; i <= currentSegment; i++) {
+			segments[i].clear();
+		}
+		currentSegment = 0;
+		buffer = segments[0];
+	}
+
 	/**
 	 * Puts the specified bytes at the current position
 	 *
@@ -94,8 +134,17 @@ public final class WriteBufferManager {
 	 * @throws java.io.IOException
 	 */
 	public void put(byte[] bs) throws IOException {
-		prepareToAddBytes(bs.length);
-		buffer.put(bs);
+		if (bs.length > buffer.capacity()) {
+			// Too large for the buffers, written directly
+			writeSegments();
+			ByteBuffer wrap = ByteBuffer.wrap(bs);
+			while (wrap.hasRemaining()) {
+				channel.write(wrap);
+			}
+		} else {
+			prepareToAddBytes(bs.length);
+			buffer.put(bs);
+		}
 	}
 
 	/**
@@ -105,8 +154,7 @@ public final class WriteBufferManager {
 	 * @throws java.io.IOException
 	 */
 	public void flush() throws IOException {
-		buffer.flip();
-		channel.write(buffer);
+		writeSegments();
 	}
 
 	/**
@@ -115,7 +163,9 @@ public final class WriteBufferManager {
 	 * @param order
 	 */
 	public void order(ByteOrder order) {
-		this.buffer.order(order);
+		for (ByteBuffer segment : segments) {
+			segment.order(order);
+		}
 	}
 
 	/**
@@ -28,6 +28,7 @@ package org.h2gis.drivers.dbf;
 import org.apache.commons.io.FileUtils;
 import org.h2.util.StringUtils;
 import org.h2gis.drivers.DriverManager;
+import org.h2gis.drivers.dbf.internal.DBFDriver;
 import org.h2gis.drivers.shp.SHPEngineTest;
 import org.h2gis.h2spatial.CreateSpatialExtension;
 import org.h2gis.h2spatial.ut.SpatialH2UT;
@@ -40,6 +41,8 @@ import java.sql.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -262,4 +265,84 @@ public class  DBFEngineTest {
         rs.close();
         st.execute("drop table SOTCHI_GOODHEADER");
     }
+
+    @Test
+    public void readDBFSharedStringTest() throws Exception {
+        DBFDriver driver = new DBFDriver();
+        driver.initDriverFromFile(new File(SHPEngineTest.class.getResource("waternetwork.dbf").getPath()));
+        try {
+            // Repeated character values are the same instance
+            assertEquals("river", driver.getField(0, 0));
+            assertSame(driver.getField(0, 0), driver.getField(2, 0));
+            assertSame(driver.getField(2, 0), driver.getField(7, 0));
+            // Dictionary disabled
+            driver.setStringDictionarySize(0);
+            assertEquals(driver.getField(0, 0), driver.getField(2, 0));
+            assertNotSame(driver.getField(0, 0), driver.getField(2, 0));
+        } finally {
+            driver.close();
+        }
+    }
+
+    private static int getCount(Statement st, String query) throws SQLException {
+        ResultSet rs = st.executeQuery(query);
+        try {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        } finally {
+            rs.close();
+        }
+    }
+
+    @Test
+    public void readDBFFilterTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists dbftable");
+        st.execute("CALL FILE_TABLE("+StringUtils.quoteStringSQL(SHPEngineTest.class.getResource("waternetwork.dbf").getPath())+", 'DBFTABLE');");
+        // The condition is evaluated while reading the file
+        ResultSet rs = st.executeQuery("EXPLAIN SELECT * FROM dbftable WHERE type_axe = 'river'");
+        assertTrue(rs.next());
+        assertTrue(rs.getString(1).contains("DBFTABLE_TYPE_AXE_FILTER"));
+        rs.close();
+        // Same result as the conditions evaluated by H2 only
+        int riverCount = getCount(st, "SELECT COUNT(*) FROM dbftable WHERE type_axe = 'river'");
+        assertTrue(riverCount >= 5);
+        assertEquals(getCount(st, "SELECT COUNT(*) FROM dbftable WHERE TRIM(type_axe) = 'river'"), riverCount);
+        assertEquals(getCount(st, "SELECT COUNT(*) FROM dbftable WHERE TRIM(type_axe) > 'r'"),
+                getCount(st, "SELECT COUNT(*) FROM dbftable WHERE type_axe > 'r'"));
+        assertEquals(getCount(st, "SELECT COUNT(*) FROM dbftable WHERE TRIM(type_axe) IN ('river', 'none')"),
+                getCount(st, "SELECT COUNT(*) FROM dbftable WHERE type_axe IN ('river', 'none')"));
+        assertEquals(getCount(st, "SELECT COUNT(*) FROM dbftable WHERE gid + 0 BETWEEN 10 AND 20"),
+                getCount(st, "SELECT COUNT(*) FROM dbftable WHERE gid BETWEEN 10 AND 20"));
+        assertEquals(getCount(st, "SELECT COUNT(*) FROM dbftable WHERE length + 0 < 100"),
+                getCount(st, "SELECT COUNT(*) FROM dbftable WHERE length < 100"));
+        assertEquals(0, getCount(st, "SELECT COUNT(*) FROM dbftable WHERE type_axe = 'unknown'"));
+        st.execute("drop table dbftable");
+    }
+
+    @Test
+    public void readDBFFilterInListTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists dbftable");
+        st.execute("CALL FILE_TABLE("+StringUtils.quoteStringSQL(SHPEngineTest.class.getResource("waternetwork.dbf").getPath())+", 'DBFTABLE');");
+        // A single value is read in one pass over the file
+        ResultSet rs = st.executeQuery("EXPLAIN SELECT * FROM dbftable WHERE type_axe IN ('river')");
+        assertTrue(rs.next());
+        assertTrue(rs.getString(1).contains("DBFTABLE_TYPE_AXE_FILTER"));
+        rs.close();
+        // Each value of the list would be a pass over the file, the file is read once by the scan index
+        rs = st.executeQuery("EXPLAIN SELECT * FROM dbftable WHERE type_axe IN ('river', 'none', 'ditch')");
+        assertTrue(rs.next());
+        assertFalse(rs.getString(1).contains("DBFTABLE_TYPE_AXE_FILTER"));
+        rs.close();
+        rs = st.executeQuery("EXPLAIN SELECT * FROM dbftable WHERE gid IN (SELECT 1)");
+        assertTrue(rs.next());
+        assertFalse(rs.getString(1).contains("DBFTABLE_GID_FILTER"));
+        rs.close();
+        assertEquals(getCount(st, "SELECT COUNT(*) FROM dbftable WHERE TRIM(type_axe) IN ('river', 'none', 'ditch')"),
+                getCount(st, "SELECT COUNT(*) FROM dbftable WHERE type_axe IN ('river', 'none', 'ditch')"));
+        assertEquals(getCount(st, "SELECT COUNT(*) FROM dbftable WHERE gid + 0 IN (1, 5, 10, 1000)"),
+                getCount(st, "SELECT COUNT(*) FROM dbftable WHERE gid IN (1, 5, 10, 1000)"));
+        st.execute("drop table dbftable");
+    }
 }
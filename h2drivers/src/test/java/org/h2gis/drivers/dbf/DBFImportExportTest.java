@@ -24,6 +24,7 @@
  */
 package org.h2gis.drivers.dbf;
 
+import org.h2.util.StringUtils;
 import org.h2gis.drivers.dbf.internal.DBFDriver;
 import org.h2gis.drivers.shp.SHPEngineTest;
 import org.h2gis.h2spatial.CreateSpatialExtension;
@@ -42,6 +43,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -90,6 +92,60 @@ public class DBFImportExportTest {
         assertEquals("second area", row[2]);
     }
 
+    @Test
+    public void exportImportFieldTypes() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        File dbfFile = new File("target/types_export.dbf");
+        stat.execute("DROP TABLE IF EXISTS TYPES");
+        stat.execute("create table types(id int, big bigint, val double, flag boolean, day date)");
+        stat.execute("insert into types values(1, 3000000000, -12.5, true, '2014-03-01')");
+        stat.execute("insert into types values(-5, -1, 0.25, false, null)");
+        stat.execute("CALL DBFWrite('target/types_export.dbf', 'TYPES')");
+        DBFDriver dbfDriver = new DBFDriver();
+        dbfDriver.initDriverFromFile(dbfFile);
+        assertEquals(2, dbfDriver.getRowCount());
+        Object[] row = dbfDriver.getRow(0);
+        assertEquals(1, row[0]);
+        assertEquals(3000000000L, row[1]);
+        assertEquals(-12.5, (Double) row[2], 1e-12);
+        assertEquals(Boolean.TRUE, row[3]);
+        assertEquals(java.sql.Date.valueOf("2014-03-01"), row[4]);
+        row = dbfDriver.getRow(1);
+        assertEquals(-5, row[0]);
+        assertEquals(-1, ((Number) row[1]).longValue());
+        assertEquals(0.25, (Double) row[2], 1e-12);
+        assertEquals(Boolean.FALSE, row[3]);
+        assertNull(row[4]);
+        dbfDriver.close();
+        stat.execute("DROP TABLE TYPES");
+    }
+
+    @Test
+    public void exportImportFieldWidth() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        File dbfFile = new File("target/width_export.dbf");
+        stat.execute("DROP TABLE IF EXISTS WIDTH");
+        stat.execute("create table width(name varchar(5), num int)");
+        stat.execute("insert into width values('h\u00e9h\u00e9', 123456)");
+        stat.execute("insert into width values('abc', -42)");
+        stat.execute("insert into width values(null, null)");
+        new DBFDriverFunction().exportTable(connection, "WIDTH", dbfFile, new EmptyProgressVisitor(), "UTF-8");
+        DBFDriver dbfDriver = new DBFDriver();
+        dbfDriver.initDriverFromFile(dbfFile, "UTF-8");
+        assertEquals(3, dbfDriver.getRowCount());
+        // Multi-byte characters are not split
+        Object[] row = dbfDriver.getRow(0);
+        assertEquals("h\u00e9h", row[0]);
+        assertEquals(123456, row[1]);
+        row = dbfDriver.getRow(1);
+        assertEquals("abc", row[0]);
+        assertEquals(-42, row[1]);
+        row = dbfDriver.getRow(2);
+        assertEquals(0, ((Number) row[1]).intValue());
+        dbfDriver.close();
+        stat.execute("DROP TABLE WIDTH");
+    }
+
     @Test
     public void importTableTestGeomEnd() throws SQLException, IOException {
         Statement st = connection.createStatement();
@@ -128,4 +184,23 @@ public class DBFImportExportTest {
         rs.close();
         st.execute("drop table WATERNETWORK");
     }
+
+    @Test
+    public void readDBFBulkLoad() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WATERBULK, WATERBATCH");
+        final String path = StringUtils.quoteStringSQL(SHPEngineTest.class.getResource("waternetwork.dbf").getPath());
+        st.execute("CALL DBFRead(" + path + ", 'WATERBULK', null, true);");
+        st.execute("CALL DBFRead(" + path + ", 'WATERBATCH');");
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM WATERBULK");
+        assertTrue(rs.next());
+        assertEquals(382, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT COUNT(*) FROM WATERBULK A, WATERBATCH B WHERE A.GID = B.GID AND " +
+                "A.TYPE_AXE = B.TYPE_AXE AND A.LENGTH = B.LENGTH");
+        assertTrue(rs.next());
+        assertEquals(382, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE WATERBULK, WATERBATCH");
+    }
 }
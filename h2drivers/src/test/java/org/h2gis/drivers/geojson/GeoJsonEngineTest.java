@@ -0,0 +1,193 @@
+/*
+ * h2spatial is a library that brings spatial support to the H2 Java database.
+ *
+ * h2spatial is distributed under GPL 3 license. It is produced by the "Atelier SIG"
+ * team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2007-2014 IRSTV (FR CNRS 2488)
+ *
+ * h2patial is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * h2spatial is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * h2spatial. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+
+package org.h2gis.drivers.geojson;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+import org.h2.table.Column;
+import org.h2.util.StringUtils;
+import org.h2.value.Value;
+import org.h2gis.drivers.DriverManager;
+import org.h2gis.drivers.file_table.H2TableStatistics;
+import org.h2gis.h2spatial.CreateSpatialExtension;
+import org.h2gis.h2spatial.ut.SpatialH2UT;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Nicolas Fortin
+ */
+public class GeoJsonEngineTest {
+    private static Connection connection;
+    private static final String DB_NAME = "GeoJsonEngineTest";
+    private static final WKTReader WKTREADER = new WKTReader();
+
+    @BeforeClass
+    public static void tearUp() throws Exception {
+        // Keep a connection alive to not close the DataBase on each unit test
+        connection = SpatialH2UT.createSpatialDataBase(DB_NAME);
+        CreateSpatialExtension.registerFunction(connection.createStatement(), new DriverManager(), "");
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        connection.close();
+    }
+
+    private static File writeFeatures(String path, int featureCount) throws Exception {
+        File file = new File(path);
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write("{\"type\": \"FeatureCollection\", \"bbox\": [0, 0, 10, 10], \"features\": [\n");
+            for (int i = 1; i <= featureCount; i++) {
+                if (i > 1) {
+                    writer.write(",\n");
+                }
+                writer.write("{\"type\": \"Feature\", \"properties\": {\"name\": \"f" + i + "\", \"val\": " + i + ".5}, "
+                        + "\"geometry\": {\"type\": \"LineString\", \"coordinates\": [[" + i + ", 2], [3, 4]]}}");
+            }
+            writer.write("]}");
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void readGeoJsonDataTest() throws Exception {
+        File file = writeFeatures("target/linked.geojson", 10);
+        File indexFile = GeoJsonDriver.getIndexFile(file);
+        indexFile.delete();
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS GEOJSONTABLE");
+        st.execute("CALL FILE_TABLE(" + StringUtils.quoteStringSQL(file.getPath()) + ", 'GEOJSONTABLE');");
+        assertTrue(indexFile.exists());
+        ResultSet rs = st.executeQuery("SELECT * FROM GEOJSONTABLE");
+        assertEquals("NAME", rs.getMetaData().getColumnName(1));
+        assertEquals("VAL", rs.getMetaData().getColumnName(2));
+        assertEquals("THE_GEOM", rs.getMetaData().getColumnName(3));
+        for (int i = 1; i <= 10; i++) {
+            assertTrue(rs.next());
+            assertEquals("f" + i, rs.getString("NAME"));
+            assertEquals(i + 0.5, rs.getDouble("VAL"), 1e-12);
+            assertTrue(((Geometry) rs.getObject("THE_GEOM")).equals(WKTREADER.read("LINESTRING(" + i + " 2, 3 4)")));
+        }
+        assertFalse(rs.next());
+        rs.close();
+        // Random access, through the saved index
+        st.execute("DROP TABLE GEOJSONTABLE");
+        st.execute("CALL FILE_TABLE(" + StringUtils.quoteStringSQL(file.getPath()) + ", 'GEOJSONTABLE');");
+        rs = st.executeQuery("SELECT NAME FROM GEOJSONTABLE WHERE _ROWID_ = 7");
+        assertTrue(rs.next());
+        assertEquals("f7", rs.getString(1));
+        rs.close();
+        st.execute("DROP TABLE GEOJSONTABLE");
+        st.close();
+    }
+
+    @Test
+    public void readModifiedGeoJsonTest() throws Exception {
+        File file = writeFeatures("target/linked_modified.geojson", 3);
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS GEOJSONTABLE");
+        st.execute("CALL FILE_TABLE(" + StringUtils.quoteStringSQL(file.getPath()) + ", 'GEOJSONTABLE');");
+        st.execute("DROP TABLE GEOJSONTABLE");
+        // The outdated index must not be used
+        writeFeatures(file.getPath(), 5);
+        file.setLastModified(GeoJsonDriver.getIndexFile(file).lastModified() + 2000);
+        st.execute("CALL FILE_TABLE(" + StringUtils.quoteStringSQL(file.getPath()) + ", 'GEOJSONTABLE');");
+        ResultSet rs = st.executeQuery("SELECT COUNT(*), MAX(NAME) FROM GEOJSONTABLE");
+        assertTrue(rs.next());
+        assertEquals(5, rs.getInt(1));
+        assertEquals("f5", rs.getString(2));
+        rs.close();
+        st.execute("DROP TABLE GEOJSONTABLE");
+        st.close();
+    }
+
+    @Test
+    public void readEmptyGeoJsonTest() throws Exception {
+        File file = writeFeatures("target/linked_empty.geojson", 0);
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS GEOJSONTABLE");
+        st.execute("CALL FILE_TABLE(" + StringUtils.quoteStringSQL(file.getPath()) + ", 'GEOJSONTABLE');");
+        ResultSet rs = st.executeQuery("SELECT * FROM GEOJSONTABLE");
+        assertEquals(1, rs.getMetaData().getColumnCount());
+        assertEquals("THE_GEOM", rs.getMetaData().getColumnName(1));
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE GEOJSONTABLE");
+        st.close();
+    }
+
+    @Test
+    public void statisticsParseEachSampledFeatureOnceTest() throws Exception {
+        File file = writeFeatures("target/linked_statistics.geojson", 50);
+        final Set<Long> parsedRows = new HashSet<Long>();
+        final int[] parseCount = new int[1];
+        GeoJsonDriver driver = new GeoJsonDriver() {
+            private long lastRowId = -1;
+
+            @Override
+            public Object[] getRow(long rowId) throws IOException {
+                if (rowId != lastRowId) {
+                    parseCount[0]++;
+                    parsedRows.add(rowId);
+                    lastRowId = rowId;
+                }
+                return super.getRow(rowId);
+            }
+        };
+        driver.initDriverFromFile(file, false);
+        try {
+            Column[] columns = new Column[] {new Column("NAME", Value.STRING), new Column("VAL", Value.DOUBLE),
+                    new Column("THE_GEOM", Value.GEOMETRY)};
+            H2TableStatistics statistics = new H2TableStatistics(driver, columns);
+            statistics.compute();
+            // All the fields of a feature are read before the next feature
+            assertEquals(parsedRows.size(), parseCount[0]);
+            assertEquals(50, statistics.getDistinctCount(0));
+            assertEquals(1.5, statistics.getMin(1), 1e-12);
+            assertEquals(50.5, statistics.getMax(1), 1e-12);
+        } finally {
+            driver.close();
+        }
+    }
+}
@@ -26,14 +26,23 @@ package org.h2gis.drivers.geojson;
 
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.WKTReader;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import org.h2gis.h2spatial.CreateSpatialExtension;
 import org.h2gis.h2spatial.ut.SpatialH2UT;
+import org.h2gis.h2spatialapi.EmptyProgressVisitor;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -51,6 +60,7 @@ public class GeojsonImportExportTest {
         // Keep a connection alive to not close the DataBase on each unit test
         connection = SpatialH2UT.createSpatialDataBase(DB_NAME);
         CreateSpatialExtension.registerFunction(connection.createStatement(), new ST_AsGeoJSON(), "");
+        CreateSpatialExtension.registerFunction(connection.createStatement(), new ST_GeomFromGeoJSON(), "");
         CreateSpatialExtension.registerFunction(connection.createStatement(), new GeoJsonWrite(), "");
         CreateSpatialExtension.registerFunction(connection.createStatement(), new GeoJsonRead(), "");
     }
@@ -417,4 +427,341 @@ public class GeojsonImportExportTest {
         stat.execute("DROP TABLE IF EXISTS TABLE_MULTILINESTRINGS_READ");
         stat.close();
     }
+
+    @Test
+    public void testReadGeojsonBatch() throws Exception {
+        // Properties before the geometry, nested values are ignored
+        File file = new File("target/batch.geojson");
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write("{\"type\": \"FeatureCollection\", \"features\": [");
+            for (int i = 1; i <= 5; i++) {
+                if (i > 1) {
+                    writer.write(",");
+                }
+                writer.write("{\"type\": \"Feature\", \"properties\": {\"id\": " + i + ", \"tags\": {\"a\": [1, 2]}, " +
+                        "\"name\": \"f" + i + "\"}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [" + i + ", 2]}}");
+            }
+            writer.write("]}");
+        } finally {
+            writer.close();
+        }
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_BATCH_READ");
+        GeoJsonReaderDriver driver = new GeoJsonReaderDriver(connection, "TABLE_BATCH_READ", file);
+        driver.setBatchSize(2);
+        driver.read(new EmptyProgressVisitor());
+        assertTrue(connection.getAutoCommit());
+        ResultSet res = stat.executeQuery("SELECT * FROM TABLE_BATCH_READ ORDER BY ID;");
+        assertEquals(3, res.getMetaData().getColumnCount());
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(res.next());
+            assertEquals(i, res.getInt("ID"));
+            assertEquals("f" + i, res.getString("NAME"));
+            assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("POINT(" + i + " 2)")));
+        }
+        assertFalse(res.next());
+        res.close();
+        stat.execute("DROP TABLE IF EXISTS TABLE_BATCH_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testReadGeojsonSeq() throws Exception {
+        // Record separators, empty lines and small chunks, features must stay in the file order
+        File file = new File("target/seq.geojsonl");
+        FileWriter writer = new FileWriter(file);
+        try {
+            for (int i = 1; i <= 50; i++) {
+                writer.write("\u001E{\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [" + i + ", 2]}}\n");
+                if (i % 7 == 0) {
+                    writer.write("\n");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_SEQ_READ");
+        GeoJsonSeqReaderDriver driver = new GeoJsonSeqReaderDriver(connection, "TABLE_SEQ_READ", file);
+        driver.setChunkSize(16);
+        driver.setThreadCount(3);
+        driver.setBatchSize(4);
+        driver.read(new EmptyProgressVisitor());
+        assertTrue(connection.getAutoCommit());
+        ResultSet res = stat.executeQuery("SELECT * FROM TABLE_SEQ_READ ORDER BY ID;");
+        for (int i = 1; i <= 50; i++) {
+            assertTrue(res.next());
+            assertEquals(i, res.getInt("ID"));
+            assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("POINT(" + i + " 2)")));
+        }
+        assertFalse(res.next());
+        res.close();
+        stat.execute("DROP TABLE IF EXISTS TABLE_SEQ_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testWriteReadGeojsonSeq() throws Exception {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_LINES, TABLE_LINES_READ");
+        stat.execute("create table TABLE_LINES(the_geom GEOMETRY, id INT, name VARCHAR)");
+        stat.execute("insert into TABLE_LINES values( 'LINESTRING(1 2, 5 3, 10 19)', 1, 'a')");
+        stat.execute("insert into TABLE_LINES values( 'LINESTRING(1 10, 20 15)', 2, 'b')");
+        stat.execute("CALL GeoJsonWrite('target/lines.geojsonl', 'TABLE_LINES');");
+        stat.execute("CALL GeoJsonRead('target/lines.geojsonl', 'TABLE_LINES_READ');");
+        ResultSet res = stat.executeQuery("SELECT * FROM TABLE_LINES_READ ORDER BY ID;");
+        assertTrue(res.next());
+        assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("LINESTRING(1 2, 5 3, 10 19)")));
+        assertEquals("a", res.getString("NAME"));
+        assertTrue(res.next());
+        assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("LINESTRING(1 10, 20 15)")));
+        assertEquals("b", res.getString("NAME"));
+        assertFalse(res.next());
+        res.close();
+        stat.execute("DROP TABLE IF EXISTS TABLE_LINES, TABLE_LINES_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testReadGeojsonMembersOrder() throws Exception {
+        // The type member of the features is not the first one
+        String[] features = new String[]{
+                "{\"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 2]}, \"type\": \"Feature\", "
+                        + "\"properties\": {\"name\": \"a\"}}",
+                "{\"properties\": {\"name\": \"b\"}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [3, 4]}, "
+                        + "\"type\": \"Feature\"}"};
+        File collectionFile = new File("target/members_order.geojson");
+        FileWriter writer = new FileWriter(collectionFile);
+        try {
+            writer.write("{\"type\": \"FeatureCollection\", \"features\": [" + features[0] + ",\n" + features[1] + "]}");
+        } finally {
+            writer.close();
+        }
+        File sequenceFile = new File("target/members_order.geojsonl");
+        writer = new FileWriter(sequenceFile);
+        try {
+            writer.write(features[0] + "\n" + features[1] + "\n");
+        } finally {
+            writer.close();
+        }
+        Statement stat = connection.createStatement();
+        for (File file : new File[]{collectionFile, sequenceFile}) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_ORDER_READ");
+            stat.execute("CALL GeoJsonRead('" + file.getPath() + "', 'TABLE_ORDER_READ');");
+            ResultSet res = stat.executeQuery("SELECT * FROM TABLE_ORDER_READ ORDER BY NAME;");
+            assertTrue(res.next());
+            assertEquals("a", res.getString("NAME"));
+            assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("POINT(1 2)")));
+            assertTrue(res.next());
+            assertEquals("b", res.getString("NAME"));
+            assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("POINT(3 4)")));
+            assertFalse(res.next());
+            res.close();
+        }
+        stat.execute("DROP TABLE IF EXISTS TABLE_ORDER_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testWriteGeojsonRecordSeparator() throws Exception {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_LINES, TABLE_LINES_READ");
+        stat.execute("create table TABLE_LINES(the_geom GEOMETRY, id INT, name VARCHAR)");
+        stat.execute("insert into TABLE_LINES values( 'LINESTRING(1 2, 5 3, 10 19)', 1, 'a')");
+        stat.execute("insert into TABLE_LINES values( 'LINESTRING(1 10, 20 15)', 2, 'b')");
+        for (String extension : new String[]{"geojsons", "geojsonl"}) {
+            File file = new File("target/lines_rs." + extension);
+            stat.execute("CALL GeoJsonWrite('" + file.getPath() + "', 'TABLE_LINES');");
+            // RFC 8142 text sequences start each feature with the record separator
+            String prefix = extension.equals("geojsons") ? "\u001E" : "";
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                for (int i = 0; i < 2; i++) {
+                    String line = reader.readLine();
+                    assertTrue(line.startsWith(prefix + "{"));
+                }
+                assertEquals(null, reader.readLine());
+            } finally {
+                reader.close();
+            }
+            stat.execute("DROP TABLE IF EXISTS TABLE_LINES_READ");
+            stat.execute("CALL GeoJsonRead('" + file.getPath() + "', 'TABLE_LINES_READ');");
+            ResultSet res = stat.executeQuery("SELECT COUNT(*) FROM TABLE_LINES_READ");
+            assertTrue(res.next());
+            assertEquals(2, res.getInt(1));
+            res.close();
+        }
+        stat.execute("DROP TABLE IF EXISTS TABLE_LINES, TABLE_LINES_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testWriteReadGeojsonGzip() throws Exception {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_LINES, TABLE_LINES_READ");
+        stat.execute("create table TABLE_LINES(the_geom GEOMETRY, id INT, name VARCHAR)");
+        stat.execute("insert into TABLE_LINES values( 'LINESTRING(1 2, 5 3, 10 19)', 1, 'a')");
+        stat.execute("insert into TABLE_LINES values( 'LINESTRING(1 10, 20 15)', 2, 'b')");
+        for (String extension : new String[]{"geojson.gz", "geojsonl.gz"}) {
+            File file = new File("target/lines." + extension);
+            stat.execute("CALL GeoJsonWrite('" + file.getPath() + "', 'TABLE_LINES');");
+            // The file starts with the gzip magic number
+            InputStream in = new FileInputStream(file);
+            try {
+                assertEquals(0x1f, in.read());
+                assertEquals(0x8b, in.read());
+            } finally {
+                in.close();
+            }
+            stat.execute("CALL GeoJsonRead('" + file.getPath() + "', 'TABLE_LINES_READ');");
+            ResultSet res = stat.executeQuery("SELECT * FROM TABLE_LINES_READ ORDER BY ID;");
+            assertTrue(res.next());
+            assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("LINESTRING(1 2, 5 3, 10 19)")));
+            assertEquals("a", res.getString("NAME"));
+            assertTrue(res.next());
+            assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("LINESTRING(1 10, 20 15)")));
+            assertEquals("b", res.getString("NAME"));
+            assertFalse(res.next());
+            res.close();
+            stat.execute("DROP TABLE TABLE_LINES_READ");
+        }
+        stat.execute("DROP TABLE IF EXISTS TABLE_LINES, TABLE_LINES_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testWriteGeojsonMaxDecimals() throws Exception {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_DECIMALS, TABLE_DECIMALS_READ");
+        stat.execute("create table TABLE_DECIMALS(the_geom GEOMETRY, id BIGINT, flag BOOLEAN, val DOUBLE, name VARCHAR)");
+        stat.execute("insert into TABLE_DECIMALS values( 'POINT(1.23456 3.999)', 1, true, 1.5, 'a')");
+        stat.execute("insert into TABLE_DECIMALS values( 'LINESTRING(-1.005 2, 3 4.4444)', 2, null, null, null)");
+        File file = new File("target/decimals.geojson");
+        GeoJsonWriteDriver driver = new GeoJsonWriteDriver(connection, "TABLE_DECIMALS", file);
+        driver.setMaxDecimals(2);
+        driver.write(new EmptyProgressVisitor());
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        String content;
+        try {
+            content = reader.readLine();
+        } finally {
+            reader.close();
+        }
+        assertTrue(content.contains("[1.23,4]"));
+        assertTrue(content.contains("[[-1,2],[3,4.44]]"));
+        assertTrue(content.contains("\"FLAG\":null"));
+        stat.execute("CALL GeoJsonRead('target/decimals.geojson', 'TABLE_DECIMALS_READ');");
+        ResultSet res = stat.executeQuery("SELECT * FROM TABLE_DECIMALS_READ ORDER BY ID;");
+        assertTrue(res.next());
+        assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("POINT(1.23 4)")));
+        assertTrue(res.getBoolean("FLAG"));
+        assertEquals(1.5, res.getDouble("VAL"), 1e-12);
+        assertEquals("a", res.getString("NAME"));
+        assertTrue(res.next());
+        assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("LINESTRING(-1 2, 3 4.44)")));
+        assertFalse(res.next());
+        res.close();
+        stat.execute("DROP TABLE IF EXISTS TABLE_DECIMALS, TABLE_DECIMALS_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testWriteGeojsonParallel() throws Exception {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_CHUNKS, TABLE_CHUNKS_READ");
+        stat.execute("create table TABLE_CHUNKS(the_geom GEOMETRY, id INT)");
+        for (int i = 1; i <= 20; i++) {
+            stat.execute("insert into TABLE_CHUNKS values( 'POINT(" + i + " 1)', " + i + ")");
+        }
+        // Empty _ROWID_ ranges
+        stat.execute("delete from TABLE_CHUNKS where id between 5 and 9");
+        for (String extension : new String[]{"geojson", "geojsonl"}) {
+            GeoJsonWriteDriver driver = new GeoJsonWriteDriver(connection, "TABLE_CHUNKS", new File("target/chunks." + extension));
+            driver.setThreadCount(3);
+            driver.setChunkSize(2);
+            driver.write(new EmptyProgressVisitor());
+            stat.execute("DROP TABLE IF EXISTS TABLE_CHUNKS_READ");
+            stat.execute("CALL GeoJsonRead('target/chunks." + extension + "', 'TABLE_CHUNKS_READ');");
+            ResultSet res = stat.executeQuery("SELECT * FROM TABLE_CHUNKS_READ ORDER BY ID;");
+            for (int i = 1; i <= 20; i++) {
+                if (i < 5 || i > 9) {
+                    assertTrue(res.next());
+                    assertEquals(i, res.getInt("ID"));
+                    assertTrue(((Geometry) res.getObject("THE_GEOM")).equals(WKTREADER.read("POINT(" + i + " 1)")));
+                }
+            }
+            assertFalse(res.next());
+            res.close();
+        }
+        stat.execute("DROP TABLE IF EXISTS TABLE_CHUNKS, TABLE_CHUNKS_READ");
+        stat.close();
+    }
+
+    @Test
+    public void testWriteGeojsonParallelSparseKeys() throws Exception {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS TABLE_SPARSE");
+        // The _ROWID_ is the primary key, the key values have huge gaps
+        stat.execute("create table TABLE_SPARSE(pk BIGINT PRIMARY KEY, the_geom GEOMETRY, num INT)");
+        long[] keys = new long[]{-4611686018427387904L, -7, 1, 2, 10000000000L, 10000000001L, 4611686018427387904L,
+            Long.MAX_VALUE};
+        for (int i = 0; i < keys.length; i++) {
+            stat.execute("insert into TABLE_SPARSE values(" + keys[i] + ", 'POINT(" + i + " 1)', " + i + ")");
+        }
+        GeoJsonWriteDriver driver = new GeoJsonWriteDriver(connection, "TABLE_SPARSE", new File("target/sparse.geojsonl"));
+        driver.setThreadCount(3);
+        driver.setChunkSize(3);
+        driver.write(new EmptyProgressVisitor());
+        // Features are written in the key order, one by line
+        BufferedReader reader = new BufferedReader(new FileReader("target/sparse.geojsonl"));
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                String line = reader.readLine().toUpperCase();
+                assertTrue(line, line.matches(".*\"NUM\":" + i + "[,}].*"));
+                assertTrue(line, line.contains("[" + i + ".0,1.0]"));
+            }
+            assertEquals(null, reader.readLine());
+        } finally {
+            reader.close();
+        }
+        stat.execute("DROP TABLE IF EXISTS TABLE_SPARSE");
+        stat.close();
+    }
+
+    @Test
+    public void testGeojsonMaxDecimals() throws Exception {
+        Statement stat = connection.createStatement();
+        ResultSet res = stat.executeQuery("SELECT ST_AsGeoJSON('LINESTRING(1.23456 -0.004, 2.5 3.0001)'::geometry, 2), "
+                + "ST_AsGeoJSON('POINT(1.23456 2)'::geometry), ST_AsGeoJSON(null)");
+        assertTrue(res.next());
+        assertEquals("{\"type\":\"LineString\",\"coordinates\":[[1.23,0],[2.5,3]]}", res.getString(1));
+        assertEquals("{\"type\":\"Point\",\"coordinates\":[1.23456,2.0]}", res.getString(2));
+        assertEquals(null, res.getString(3));
+        res.close();
+        stat.close();
+    }
+
+    @Test
+    public void testGeomFromGeojson() throws Exception {
+        Statement stat = connection.createStatement();
+        String[] wkts = new String[]{"POINT (1 2)", "LINESTRING (1 2, 2 3)",
+            "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 2))", "MULTIPOINT ((0 0), (1 1))",
+            "MULTILINESTRING ((0 0, 1 1), (2 2, 3 3))", "MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+            "GEOMETRYCOLLECTION (POINT (1 2), LINESTRING (1 2, 2 3))"};
+        for (String wkt : wkts) {
+            ResultSet res = stat.executeQuery("SELECT ST_GeomFromGeoJSON(ST_AsGeoJSON('" + wkt + "'::geometry))");
+            assertTrue(res.next());
+            assertTrue(wkt, ((Geometry) res.getObject(1)).equals(WKTREADER.read(wkt)));
+            res.close();
+        }
+        ResultSet res = stat.executeQuery("SELECT ST_GeomFromGeoJSON('{\"type\": \"Point\", \"coordinates\": [1, 2, 3]}'), "
+                + "ST_GeomFromGeoJSON(null)");
+        assertTrue(res.next());
+        Geometry point = (Geometry) res.getObject(1);
+        assertEquals(3, point.getCoordinate().z, 1e-12);
+        assertEquals(null, res.getObject(2));
+        res.close();
+        stat.close();
+    }
 }
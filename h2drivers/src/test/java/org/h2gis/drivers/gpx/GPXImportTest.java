@@ -24,15 +24,24 @@
  */
 package org.h2gis.drivers.gpx;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.zip.GZIPOutputStream;
 import org.h2.util.StringUtils;
+import org.h2gis.drivers.gpx.model.GpxParser;
+import org.h2gis.drivers.gpx.model.GpxPullParser;
 import org.h2gis.h2spatial.CreateSpatialExtension;
 import org.h2gis.h2spatial.ut.SpatialH2UT;
+import org.h2gis.h2spatialapi.EmptyProgressVisitor;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -79,6 +88,36 @@ public class GPXImportTest {
         st.execute("drop table GPXDATA_WAYPOINT");
     }
 
+    @Test
+    public void importGPXWaypointsGzip() throws Exception {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WAYPOINT_WAYPOINT");
+        File file = new File("target/waypoint.gpx.gz");
+        InputStream in = GPXImportTest.class.getResourceAsStream("waypoint.gpx");
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+        // The table name is the file name without the gpx.gz extension
+        st.execute("CALL GPXRead(" + StringUtils.quoteStringSQL(file.getPath()) + ");");
+        ResultSet rs = st.executeQuery("SELECT count(id) FROM WAYPOINT_WAYPOINT");
+        rs.next();
+        assertEquals(3, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT * FROM WAYPOINT_WAYPOINT");
+        assertTrue(rs.next());
+        assertEquals("POINT (-71.119277 42.438878)", rs.getString("the_geom"));
+        rs.close();
+        st.execute("drop table WAYPOINT_WAYPOINT");
+    }
+
     @Test
     public void importGPXRoute() throws SQLException {
         Statement st = connection.createStatement();
@@ -161,4 +200,56 @@ public class GPXImportTest {
         rs.close();
         st.execute("drop table WAYPOINT_WAYPOINT");
     }
+
+    @Test
+    public void importGPXTracksBatch() throws Exception {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS GPXBATCH_TRACK, GPXBATCH_TRACKSEGMENT, GPXBATCH_TRACKPOINT");
+        GPXDriverFunction driverFunction = new GPXDriverFunction();
+        // Batches are executed while the file is parsed
+        driverFunction.setBatchSize(3);
+        driverFunction.importFile(connection, "GPXBATCH", new File(GPXImportTest.class.getResource("track.gpx").getPath()),
+                new EmptyProgressVisitor());
+        assertTrue(connection.getAutoCommit());
+        ResultSet rs = st.executeQuery("SELECT count(id) FROM GPXBATCH_TRACK");
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(id) FROM GPXBATCH_TRACKSEGMENT");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT id FROM GPXBATCH_TRACKPOINT ORDER BY id");
+        for (int id = 1; id <= 4; id++) {
+            assertTrue(rs.next());
+            assertEquals(id, rs.getInt(1));
+        }
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE GPXBATCH_TRACK, GPXBATCH_TRACKSEGMENT, GPXBATCH_TRACKPOINT");
+    }
+
+    @Test
+    public void importGPXWaypointsSaxAndPullParser() throws Exception {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS GPXPULL_WAYPOINT, GPXSAX_WAYPOINT");
+        File file = new File(GPXImportTest.class.getResource("waypoint.gpx").getPath());
+        new GpxPullParser().read(file, "GPXPULL", connection);
+        new GpxParser().read(file, "GPXSAX", connection);
+        ResultSet rs = st.executeQuery("SELECT p.ele, p.time, p.the_geom = s.the_geom, p.name = s.name, p.sym = s.sym," +
+                " p.type = s.type FROM GPXPULL_WAYPOINT p, GPXSAX_WAYPOINT s WHERE p.id = s.id ORDER BY p.id");
+        assertTrue(rs.next());
+        // The elevation is read from the ele element
+        assertEquals(44.586548, rs.getDouble(1), 1e-12);
+        assertEquals("2001-11-28T21:05:28Z", rs.getString(2));
+        for (int i = 3; i <= 6; i++) {
+            assertTrue(rs.getBoolean(i));
+        }
+        assertTrue(rs.next());
+        assertEquals(57.6072, rs.getDouble(1), 1e-12);
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE GPXPULL_WAYPOINT, GPXSAX_WAYPOINT");
+    }
 }
@@ -27,8 +27,13 @@ package org.h2gis.drivers.shp;
 
 import com.vividsolutions.jts.geom.Geometry;
 import org.apache.commons.io.FileUtils;
+import org.h2.command.dml.Select;
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.table.TableFilter;
 import org.h2.util.StringUtils;
 import org.h2gis.drivers.DriverManager;
+import org.h2gis.drivers.file_table.H2TableIndex;
 import org.h2gis.h2spatial.CreateSpatialExtension;
 import org.h2gis.h2spatial.ut.SpatialH2UT;
 import org.h2gis.utilities.GeometryTypeCodes;
@@ -253,4 +258,98 @@ public class SHPEngineTest {
         assertEquals(GeometryTypeCodes.MULTILINESTRING, SFSUtilities.getGeometryType(connection, TableLocation.parse("SHPTABLE"), ""));
         st.execute("drop table shptable");
     }
+
+    @Test
+    public void readSHPSpatialIndexTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists shptable");
+        st.execute("CALL FILE_TABLE('"+SHPEngineTest.class.getResource("waternetwork.shp").getPath()+"', 'SHPTABLE');");
+        final String filter = "the_geom && ST_GeomFromText('POLYGON ((183000 2425000, 184000 2425000, 184000 2426000," +
+                " 183000 2426000, 183000 2425000))')";
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM shptable WHERE " + filter);
+        assertTrue(rs.next());
+        int expectedCount = rs.getInt(1);
+        rs.close();
+        st.execute("CREATE SPATIAL INDEX shptable_spind ON shptable(the_geom)");
+        rs = st.executeQuery("EXPLAIN SELECT * FROM shptable WHERE " + filter);
+        assertTrue(rs.next());
+        assertTrue(rs.getString(1).contains("SHPTABLE_SPIND"));
+        rs.close();
+        rs = st.executeQuery("SELECT COUNT(*) FROM shptable WHERE " + filter);
+        assertTrue(rs.next());
+        assertTrue(expectedCount > 0);
+        assertEquals(expectedCount, rs.getInt(1));
+        rs.close();
+        st.execute("drop table shptable");
+    }
+
+    @Test
+    public void readSHPSpatialSelectivityTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists shptable");
+        st.execute("CALL FILE_TABLE('"+SHPEngineTest.class.getResource("waternetwork.shp").getPath()+"', 'SHPTABLE');");
+        double small = getSpatialSelectivity("POLYGON ((183000 2425000, 184000 2425000, 184000 2426000," +
+                " 183000 2426000, 183000 2425000))");
+        double large = getSpatialSelectivity("POLYGON ((0 0, 1e7 0, 1e7 1e7, 0 1e7, 0 0))");
+        double outside = getSpatialSelectivity("POLYGON ((0 0, 1 0, 1 1, 0 1, 0 0))");
+        // The estimate depends on the part of the file extent covered by the query window
+        assertEquals(1, large, 1e-12);
+        assertTrue(small > 0 && small < large);
+        assertTrue(outside < small);
+        st.execute("drop table shptable");
+    }
+
+    /**
+     * @param wkt Query window
+     * @return The spatial selectivity estimated by the linked table statistics
+     */
+    private static double getSpatialSelectivity(String wkt) {
+        Session session = (Session) ((JdbcConnection) connection).getSession();
+        Select select = (Select) session.prepare("SELECT * FROM shptable WHERE the_geom && ST_GeomFromText('" +
+                wkt + "')");
+        TableFilter filter = select.getTopTableFilter();
+        H2TableIndex scanIndex = (H2TableIndex) filter.getTable().getScanIndex(session);
+        return scanIndex.getStatistics().getSpatialSelectivity(session, filter, 0);
+    }
+
+    @Test
+    public void readSHPJoinPlanTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists shptable");
+        st.execute("drop table if exists gids");
+        st.execute("CALL FILE_TABLE('"+SHPEngineTest.class.getResource("waternetwork.shp").getPath()+"', 'SHPTABLE');");
+        st.execute("create table gids(id int primary key)");
+        st.execute("insert into gids select x from system_range(1, 1000)");
+        // The linked file must be scanned once, the regular table is read using its primary key
+        ResultSet rs = st.executeQuery("EXPLAIN SELECT * FROM gids g, shptable s WHERE g.id = s.gid");
+        assertTrue(rs.next());
+        String plan = rs.getString(1);
+        rs.close();
+        assertTrue(plan, plan.indexOf("SHPTABLE_DATA") < plan.indexOf("PRIMARY_KEY"));
+        rs = st.executeQuery("SELECT COUNT(*) FROM gids g, shptable s WHERE g.id = s.gid");
+        assertTrue(rs.next());
+        assertEquals(382, rs.getInt(1));
+        rs.close();
+        st.execute("drop table shptable");
+        st.execute("drop table gids");
+    }
+
+    @Test
+    public void readSHPMappedDataTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists shptable");
+        st.execute("CREATE TABLE shptable ENGINE "+StringUtils.quoteJavaString(SHPEngine.class.getName())+" WITH "+
+                StringUtils.quoteJavaString(SHPEngineTest.class.getResource("waternetwork.shp").getPath())+", \"\", \"MAPPED\"");
+        ResultSet rs = st.executeQuery("SELECT the_geom, gid FROM shptable");
+        double sumLength = 0;
+        long sumGid = 0;
+        while(rs.next()) {
+            sumLength+=((Geometry)rs.getObject("the_geom")).getLength();
+            sumGid += rs.getLong("gid");
+        }
+        assertEquals(28469.778049948833, sumLength, 1e-12);
+        assertEquals(382 * 383 / 2, sumGid);
+        rs.close();
+        st.execute("drop table shptable");
+    }
 }
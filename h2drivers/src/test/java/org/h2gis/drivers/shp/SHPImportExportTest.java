@@ -25,6 +25,8 @@
 package org.h2gis.drivers.shp;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Polygon;
+import org.apache.commons.io.FileUtils;
 import org.h2.util.StringUtils;
 import org.h2gis.drivers.DriverManager;
 import org.h2gis.drivers.shp.internal.SHPDriver;
@@ -32,18 +34,26 @@ import org.h2gis.h2spatial.CreateSpatialExtension;
 import org.h2gis.h2spatial.ut.SpatialH2UT;
 import org.h2gis.h2spatialapi.DriverFunction;
 import org.h2gis.h2spatialapi.EmptyProgressVisitor;
+import org.h2gis.h2spatialapi.ProgressVisitor;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -139,6 +149,35 @@ public class SHPImportExportTest {
         checkSHPReadResult(st);
     }
 
+    @Test
+    public void copyZippedSHPTest() throws SQLException, IOException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WATERNETWORK");
+        File zipFile = new File("target/waternetwork.zip");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile));
+        try {
+            for(String extension : new String[] {"dbf", "shp", "shx"}) {
+                // Archive entries are usually in a folder
+                zos.putNextEntry(new ZipEntry("data/waternetwork." + extension));
+                InputStream in = SHPEngineTest.class.getResourceAsStream("waternetwork." + extension);
+                try {
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while((read = in.read(buffer)) > 0) {
+                        zos.write(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+        st.execute("CALL SHPRead(" + StringUtils.quoteStringSQL(zipFile.getPath()) + ");");
+        checkSHPReadResult(st);
+    }
+
     private void checkSHPReadResult(Statement st) throws SQLException {
         // Query declared Table columns
         ResultSet rs = st.executeQuery("SELECT * FROM INFORMATION_SCHEMA.COLUMNS where TABLE_NAME = 'WATERNETWORK'");
@@ -246,4 +285,236 @@ public class SHPImportExportTest {
         // Create a shape file using table area
         stat.execute("CALL SHPWrite('target/area_export.shp', 'AREA')");
     }
+
+    @Test
+    public void exportImportMultiPolygonManyHoles() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        File shpFile = new File("target/area_holes_export.shp");
+        stat.execute("DROP TABLE IF EXISTS AREA");
+        stat.execute("create table area(the_geom MULTIPOLYGON, idarea int primary key)");
+        // A grid of 40 squares with one hole each, shells are clockwise as the shape file writer does not orient rings
+        StringBuilder wkt = new StringBuilder("MULTIPOLYGON (");
+        for (int i = 0; i < 40; i++) {
+            int x = (i % 8) * 20;
+            int y = (i / 8) * 20;
+            if (i > 0) {
+                wkt.append(", ");
+            }
+            wkt.append(String.format("((%d %d, %d %d, %d %d, %d %d, %d %d), (%d %d, %d %d, %d %d, %d %d, %d %d))",
+                    x, y, x, y + 10, x + 10, y + 10, x + 10, y, x, y,
+                    x + 4, y + 4, x + 6, y + 4, x + 6, y + 6, x + 4, y + 6, x + 4, y + 4));
+        }
+        wkt.append(")");
+        stat.execute("insert into area values('" + wkt + "', 1)");
+        stat.execute("CALL SHPWrite('target/area_holes_export.shp', 'AREA')");
+        assertTrue(shpFile.exists());
+        SHPDriver shpDriver = new SHPDriver();
+        shpDriver.initDriverFromFile(shpFile);
+        shpDriver.setGeometryFieldIndex(0);
+        Geometry geom = (Geometry) shpDriver.getRow(0)[0];
+        shpDriver.close();
+        assertEquals(40, geom.getNumGeometries());
+        for (int i = 0; i < geom.getNumGeometries(); i++) {
+            assertEquals(1, ((Polygon) geom.getGeometryN(i)).getNumInteriorRing());
+        }
+        assertEquals(40 * 96, geom.getArea(), 1e-6);
+    }
+
+    @Test
+    public void exportImportSpatialIndex() throws SQLException, IOException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WATERNETWORK");
+        st.execute("DROP TABLE IF EXISTS QIXTABLE");
+        final String path = StringUtils.quoteStringSQL(SHPEngineTest.class.getResource("waternetwork.shp").getPath());
+        st.execute("CALL SHPRead(" + path + ", 'WATERNETWORK');");
+        File shpFile = new File("target/waternetwork_qix.shp");
+        st.execute("CALL SHPWrite('target/waternetwork_qix.shp', 'WATERNETWORK', null, true)");
+        assertTrue(new File("target/waternetwork_qix.qix").exists());
+        st.execute("CREATE TABLE QIXTABLE ENGINE " + StringUtils.quoteJavaString(SHPEngine.class.getName()) + " WITH " +
+                StringUtils.quoteJavaString(shpFile.getAbsolutePath()));
+        // The index of the linked file is used instead of building the R-Tree
+        st.execute("CREATE SPATIAL INDEX qixtable_spind ON qixtable(the_geom)");
+        final String filter = "the_geom && ST_GeomFromText('POLYGON ((183000 2425000, 184000 2425000, 184000 2426000," +
+                " 183000 2426000, 183000 2425000))')";
+        ResultSet rs = st.executeQuery("EXPLAIN SELECT * FROM qixtable WHERE " + filter);
+        assertTrue(rs.next());
+        assertTrue(rs.getString(1).contains("QIXTABLE_SPIND"));
+        rs.close();
+        rs = st.executeQuery("SELECT COUNT(*) FROM waternetwork WHERE " + filter);
+        assertTrue(rs.next());
+        int expectedCount = rs.getInt(1);
+        rs.close();
+        assertTrue(expectedCount > 0);
+        rs = st.executeQuery("SELECT COUNT(*) FROM qixtable WHERE " + filter);
+        assertTrue(rs.next());
+        assertEquals(expectedCount, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE QIXTABLE");
+        st.execute("DROP TABLE WATERNETWORK");
+    }
+
+    @Test
+    public void readShptreeSpatialIndex() throws SQLException, IOException {
+        // Index written by the quadtree algorithm of MapServer shptree, in the big endian (NM) byte order
+        File directory = new File("target/shptree");
+        directory.mkdirs();
+        for (String extension : new String[]{"shp", "shx", "dbf"}) {
+            FileUtils.copyFile(new File(SHPEngineTest.class.getResource("waternetwork." + extension).getPath()),
+                    new File(directory, "waternetwork." + extension));
+        }
+        FileUtils.copyFile(new File(SHPEngineTest.class.getResource("waternetwork_shptree.qix").getPath()),
+                new File(directory, "waternetwork.qix"));
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS QIXTABLE");
+        st.execute("DROP TABLE IF EXISTS SHPTABLE");
+        st.execute("CREATE TABLE QIXTABLE ENGINE " + StringUtils.quoteJavaString(SHPEngine.class.getName()) + " WITH " +
+                StringUtils.quoteJavaString(new File(directory, "waternetwork.shp").getAbsolutePath()));
+        st.execute("CREATE SPATIAL INDEX qixtable_spind ON qixtable(the_geom)");
+        // Same file without sidecar
+        st.execute("CALL FILE_TABLE(" + StringUtils.quoteStringSQL(SHPEngineTest.class.getResource("waternetwork.shp")
+                .getPath()) + ", 'SHPTABLE');");
+        String[] windows = new String[] {
+                "POLYGON ((183000 2425000, 184000 2425000, 184000 2426000, 183000 2426000, 183000 2425000))",
+                "POLYGON ((184000 2428000, 186000 2428000, 186000 2432000, 184000 2432000, 184000 2428000))",
+                "POLYGON ((183700 2427000, 183710 2427000, 183710 2427010, 183700 2427010, 183700 2427000))",
+                "POLYGON ((0 0, 1e7 0, 1e7 1e7, 0 1e7, 0 0))",
+                "POLYGON ((0 0, 1 0, 1 1, 0 1, 0 0))"};
+        for (String window : windows) {
+            String filter = " WHERE the_geom && ST_GeomFromText('" + window + "') ORDER BY gid";
+            ResultSet rs = st.executeQuery("EXPLAIN SELECT gid FROM qixtable" + filter);
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1).contains("QIXTABLE_SPIND"));
+            rs.close();
+            ResultSet expected = st.executeQuery("SELECT gid FROM shptable" + filter);
+            List<Integer> expectedRows = new ArrayList<Integer>();
+            while (expected.next()) {
+                expectedRows.add(expected.getInt(1));
+            }
+            expected.close();
+            ResultSet actual = st.executeQuery("SELECT gid FROM qixtable" + filter);
+            List<Integer> actualRows = new ArrayList<Integer>();
+            while (actual.next()) {
+                actualRows.add(actual.getInt(1));
+            }
+            actual.close();
+            assertEquals(window, expectedRows, actualRows);
+        }
+        st.execute("DROP TABLE QIXTABLE");
+        st.execute("DROP TABLE SHPTABLE");
+    }
+
+    @Test
+    public void importParallelSmallBatches() throws SQLException, IOException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WATERPARALLEL");
+        File shpFile = new File(SHPEngineTest.class.getResource("waternetwork.shp").getPath());
+        SHPDriverFunction driverFunction = new SHPDriverFunction();
+        // Many chunks decoded by several threads
+        driverFunction.setBatchSize(7);
+        driverFunction.setThreadCount(3);
+        final int[] declaredSteps = new int[1];
+        final int[] stepCount = new int[1];
+        driverFunction.importFile(connection, "WATERPARALLEL", shpFile, new EmptyProgressVisitor() {
+            @Override
+            public ProgressVisitor subProcess(int stepCount) {
+                declaredSteps[0] = stepCount;
+                return this;
+            }
+
+            @Override
+            public void endStep() {
+                stepCount[0]++;
+            }
+        });
+        // 382 rows, the last batch is partial
+        assertEquals(55, declaredSteps[0]);
+        assertEquals(55, stepCount[0]);
+        // Same rows in the same order as the serial driver
+        SHPDriver shpDriver = new SHPDriver();
+        shpDriver.initDriverFromFile(shpFile);
+        try {
+            ResultSet rs = st.executeQuery("SELECT * FROM WATERPARALLEL ORDER BY _ROWID_");
+            try {
+                for (int rowId = 0; rowId < shpDriver.getRowCount(); rowId++) {
+                    assertTrue(rs.next());
+                    Object[] row = shpDriver.getRow(rowId);
+                    for (int columnId = 0; columnId < row.length; columnId++) {
+                        Object expected = row[columnId];
+                        if (expected instanceof Geometry) {
+                            assertTrue(((Geometry) expected).equalsExact((Geometry) rs.getObject(columnId + 1)));
+                        } else if (expected instanceof Number) {
+                            assertEquals(((Number) expected).doubleValue(), rs.getDouble(columnId + 1), 0);
+                        } else {
+                            assertEquals(expected, rs.getObject(columnId + 1));
+                        }
+                    }
+                }
+                assertFalse(rs.next());
+            } finally {
+                rs.close();
+            }
+        } finally {
+            shpDriver.close();
+        }
+        st.execute("DROP TABLE WATERPARALLEL");
+    }
+
+    @Test
+    public void readShapeBulkLoad() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WATERBULK, WATERBATCH");
+        final String path = StringUtils.quoteStringSQL(SHPEngineTest.class.getResource("waternetwork.shp").getPath());
+        st.execute("CALL SHPRead(" + path + ", 'WATERBULK', null, true);");
+        st.execute("CALL SHPRead(" + path + ", 'WATERBATCH');");
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM WATERBULK A, WATERBATCH B WHERE A.GID = B.GID AND " +
+                "A.TYPE_AXE = B.TYPE_AXE AND A.LENGTH = B.LENGTH AND ST_EQUALS(A.THE_GEOM, B.THE_GEOM)");
+        assertTrue(rs.next());
+        assertEquals(382, rs.getInt(1));
+        rs.close();
+        // The temporary linked table has been removed
+        rs = st.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE 'H2GIS_COPY_%'");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE WATERBULK, WATERBATCH");
+    }
+
+    @Test
+    public void importBulkLoadAndBatch() throws SQLException, IOException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WATERBULK");
+        st.execute("DROP TABLE IF EXISTS WATERBATCH");
+        File shpFile = new File(SHPEngineTest.class.getResource("waternetwork.shp").getPath());
+        SHPDriverFunction driverFunction = new SHPDriverFunction();
+        // Copy through JDBC batches by default
+        assertFalse(driverFunction.isBulkLoad());
+        driverFunction.importFile(connection, "WATERBATCH", shpFile, new EmptyProgressVisitor());
+        // Copy through a linked table, each row read by the linked table cursor is a progress step
+        driverFunction.setBulkLoad(true);
+        final int[] stepCount = new int[1];
+        driverFunction.importFile(connection, "WATERBULK", shpFile, new EmptyProgressVisitor() {
+            @Override
+            public void endStep() {
+                stepCount[0]++;
+            }
+        });
+        assertEquals(382, stepCount[0]);
+        // Both tables must have the same content
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM WATERBULK");
+        assertTrue(rs.next());
+        assertEquals(382, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT COUNT(*) FROM WATERBULK A, WATERBATCH B WHERE A.GID = B.GID AND " +
+                "A.TYPE_AXE = B.TYPE_AXE AND A.LENGTH = B.LENGTH AND ST_EQUALS(A.THE_GEOM, B.THE_GEOM)");
+        assertTrue(rs.next());
+        assertEquals(382, rs.getInt(1));
+        rs.close();
+        // The temporary linked table has been removed
+        rs = st.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE 'H2GIS_COPY_%'");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE WATERBULK");
+        st.execute("DROP TABLE WATERBATCH");
+    }
 }
@@ -30,6 +30,7 @@ import org.h2gis.drivers.dbf.DBFWrite;
 import org.h2gis.drivers.geojson.GeoJsonRead;
 import org.h2gis.drivers.geojson.GeoJsonWrite;
 import org.h2gis.drivers.geojson.ST_AsGeoJSON;
+import org.h2gis.drivers.geojson.ST_GeomFromGeoJSON;
 import org.h2gis.drivers.gpx.GPXRead;
 import org.h2gis.drivers.shp.SHPRead;
 import org.h2gis.drivers.shp.SHPWrite;
@@ -102,6 +103,7 @@ public class CreateSpatialExtension {
                 new ST_Extent(),
                 new ST_Extrude(),
                 new ST_FurthestCoordinate(),
+                new ST_GeomFromGeoJSON(),
                 new ST_Holes(),
                 new ST_Interpolate3DLine(),
                 new ST_IsRectangle(),
@@ -113,6 +113,30 @@ public class JDBCUtilities {
         return rowCount;
     }
 
+    /**
+     * Read the row count estimation stored by the database, the table content is not read.
+     * @param connection Active connection, not closed by this method
+     * @param tableReference Table reference
+     * @return Estimated row count, 0 if the database does not provide it
+     * @throws SQLException If the table does not exists.
+     */
+    public static long getRowCountEstimate(Connection connection, String tableReference) throws SQLException {
+        TableLocation location = TableLocation.parse(tableReference);
+        ResultSet rs = getTablesView(connection, location.getCatalog(), location.getSchema(), location.getTable());
+        try {
+            if(!rs.next()) {
+                throw new SQLException("The table "+location+" does not exists");
+            }
+            if(hasField(rs.getMetaData(), "ROW_COUNT_ESTIMATE")) {
+                // H2
+                return Math.max(0, rs.getLong("ROW_COUNT_ESTIMATE"));
+            }
+            return 0;
+        } finally {
+            rs.close();
+        }
+    }
+
     /**
      * Read INFORMATION_SCHEMA.TABLES in order to see if the provided table reference is a temporary table.
      * @param connection Active connection not closed by this method
@@ -60,6 +60,15 @@ public class JDBCUtilitiesTest {
         assertEquals(4, JDBCUtilities.getRowCount(connection, "TESTSCHEMA.TESTROWCOUNT"));
     }
 
+    @Test
+    public void testRowCountEstimate() throws SQLException {
+        connection.createStatement().execute("DROP TABLE IF EXISTS testRowCountEstimate");
+        connection.createStatement().execute("CREATE TABLE testRowCountEstimate(id integer primary key)");
+        connection.createStatement().execute("INSERT INTO testRowCountEstimate SELECT X FROM SYSTEM_RANGE(1, 50)");
+        assertEquals(50, JDBCUtilities.getRowCountEstimate(connection, "testRowCountEstimate"));
+        connection.createStatement().execute("DROP TABLE testRowCountEstimate");
+    }
+
     @Test
     public void testPrimaryKeyExtract() throws SQLException {
         connection.createStatement().execute("DROP TABLE IF EXISTS TEMPTABLE");